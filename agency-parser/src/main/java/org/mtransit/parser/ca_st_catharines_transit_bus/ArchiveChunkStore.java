@@ -0,0 +1,453 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.mtransit.parser.MTLog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Content-addressed & de-duplicated store for archived feed snapshots (agency-parser/archive/*.zip).
+ * <p>
+ * Each GTFS file of a snapshot is split into content-defined chunks (Gear rolling hash) stored once by SHA-256,
+ * so consecutive snapshots only add the chunks that actually changed.
+ * A snapshot manifest lists its files and their chunks, which allows to rebuild the whole zip
+ * or to stream a single file (ex: stop_times.txt) without rebuilding the zip.
+ * <p>
+ * Only the file names, modification times & contents round-trip: the rebuilt zip is re-compressed
+ * and is NOT byte-identical to the original, so the manifest also records the original zip size & SHA-256
+ * (compared by {@link FeedDownloader} with the downloaded feed).
+ * <p>
+ * The store is agency-parser/archive_store/ (regular Git files, NOT Git LFS): {@code move} replaces archive/*.zip
+ * once every file of the snapshot is verified against the original zip entries (CRC-32).
+ * <p>
+ * Usage:
+ * <ul>
+ * <li>{@code ArchiveChunkStore put <store dir> <snapshot zip>...}</li>
+ * <li>{@code ArchiveChunkStore move <store dir> <snapshot zip>...}</li>
+ * <li>{@code ArchiveChunkStore rebuild <store dir> <snapshot> <output zip>}</li>
+ * <li>{@code ArchiveChunkStore cat <store dir> <snapshot> <file name>}</li>
+ * </ul>
+ */
+@SuppressWarnings("WeakerAccess")
+public final class ArchiveChunkStore {
+
+	public static void main(@NotNull String[] args) throws IOException {
+		if (args.length < 1) {
+			throw new MTLog.Fatal("Usage: ArchiveChunkStore put|move|rebuild|cat <store dir> ...");
+		}
+		switch (args[0]) {
+		case "put":
+		case "move":
+			if (args.length < 3) {
+				throw new MTLog.Fatal("Usage: ArchiveChunkStore %s <store dir> <snapshot zip>...", args[0]);
+			}
+			final ArchiveChunkStore store = new ArchiveChunkStore(new File(args[1]));
+			for (int i = 2; i < args.length; i++) {
+				if ("move".equals(args[0])) {
+					store.move(new File(args[i]));
+				} else {
+					store.put(new File(args[i]));
+				}
+			}
+			break;
+		case "rebuild":
+			if (args.length != 4) {
+				throw new MTLog.Fatal("Usage: ArchiveChunkStore rebuild <store dir> <snapshot> <output zip>");
+			}
+			new ArchiveChunkStore(new File(args[1])).rebuild(args[2], new File(args[3]));
+			break;
+		case "cat":
+			if (args.length != 4) {
+				throw new MTLog.Fatal("Usage: ArchiveChunkStore cat <store dir> <snapshot> <file name>");
+			}
+			try (InputStream in = new ArchiveChunkStore(new File(args[1])).openFile(args[2], args[3])) {
+				copy(in, System.out);
+			}
+			System.out.flush();
+			break;
+		default:
+			throw new MTLog.Fatal("Unexpected command '%s'! (put|move|rebuild|cat)", args[0]);
+		}
+	}
+
+	private static final String CHUNKS_DIR = "chunks";
+	private static final String SNAPSHOTS_DIR = "snapshots";
+	private static final String MANIFEST_EXTENSION = ".manifest";
+	static final String STORE_DIR_NAME = "archive_store";
+	static final String ZIP_EXTENSION = ".zip";
+
+	private static final int MIN_CHUNK_SIZE = 2 * 1024;
+	private static final int MAX_CHUNK_SIZE = 64 * 1024;
+	private static final long CHUNK_MASK = (1L << 13) - 1L; // ~8 KB average
+	private static final long[] GEAR = new long[256];
+
+	static {
+		final Random random = new Random(0x4D5472616E736974L); // fixed seed => stable chunk boundaries
+		for (int i = 0; i < GEAR.length; i++) {
+			GEAR[i] = random.nextLong();
+		}
+	}
+
+	@NotNull
+	private final File chunksDir;
+	@NotNull
+	private final File snapshotsDir;
+
+	public ArchiveChunkStore(@NotNull File storeDir) {
+		this.chunksDir = new File(storeDir, CHUNKS_DIR);
+		this.snapshotsDir = new File(storeDir, SNAPSHOTS_DIR);
+	}
+
+	private static final class FileManifest {
+
+		@NotNull
+		private final String name;
+		private final long time;
+		private final long size;
+		@NotNull
+		private final List<String> chunkHashes;
+
+		private FileManifest(@NotNull String name, long time, long size, @NotNull List<String> chunkHashes) {
+			this.name = name;
+			this.time = time;
+			this.size = size;
+			this.chunkHashes = chunkHashes;
+		}
+	}
+
+	/**
+	 * @return the snapshot name (zip file name without extension)
+	 */
+	@NotNull
+	public String put(@NotNull File snapshotZip) throws IOException {
+		final String snapshot = snapshotZip.getName().endsWith(ZIP_EXTENSION)
+				? snapshotZip.getName().substring(0, snapshotZip.getName().length() - ZIP_EXTENSION.length())
+				: snapshotZip.getName();
+		final String originalSha256 = SHA256.hash(snapshotZip);
+		final List<FileManifest> files = new ArrayList<>();
+		int newChunks = 0;
+		int totalChunks = 0;
+		try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(snapshotZip.toPath())))) {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				if (entry.isDirectory()) {
+					continue;
+				}
+				final List<String> chunkHashes = new ArrayList<>();
+				long size = 0L;
+				byte[] chunk;
+				final ChunkReader reader = new ChunkReader(zip);
+				while ((chunk = reader.next()) != null) {
+					final String hash = SHA256.hash(chunk);
+					if (writeChunk(hash, chunk)) {
+						newChunks++;
+					}
+					totalChunks++;
+					chunkHashes.add(hash);
+					size += chunk.length;
+				}
+				files.add(new FileManifest(entry.getName(), entry.getTime(), size, chunkHashes));
+			}
+		}
+		writeManifest(snapshot, snapshotZip.getName(), snapshotZip.length(), originalSha256, files);
+		MTLog.log("Snapshot '%s': %d file(s), %d new chunk(s) / %d.", snapshot, files.size(), newChunks, totalChunks);
+		return snapshot;
+	}
+
+	/**
+	 * {@link #put(File)}, then deletes the zip once every stored file matches the original zip entry (size & CRC-32).
+	 *
+	 * @return the snapshot name
+	 */
+	@NotNull
+	public String move(@NotNull File snapshotZip) throws IOException {
+		final String snapshot = put(snapshotZip);
+		final List<FileManifest> files = readManifest(snapshot);
+		try (ZipFile zip = new ZipFile(snapshotZip)) {
+			int entries = 0;
+			for (Enumeration<? extends ZipEntry> it = zip.entries(); it.hasMoreElements(); ) {
+				if (!it.nextElement().isDirectory()) {
+					entries++;
+				}
+			}
+			if (entries != files.size()) {
+				throw new MTLog.Fatal("Snapshot '%s': %d stored file(s) instead of %d!", snapshot, files.size(), entries);
+			}
+			for (FileManifest file : files) {
+				final ZipEntry entry = zip.getEntry(file.name);
+				final CRC32 crc = new CRC32();
+				try (InputStream in = new ChunksInputStream(file.chunkHashes.iterator())) {
+					final byte[] buffer = new byte[MAX_CHUNK_SIZE];
+					int read;
+					while ((read = in.read(buffer)) != -1) {
+						crc.update(buffer, 0, read);
+					}
+				}
+				if (entry == null || entry.getSize() != file.size || entry.getCrc() != crc.getValue()) {
+					throw new MTLog.Fatal("Snapshot '%s': stored file '%s' does NOT match the original zip!", snapshot, file.name);
+				}
+			}
+		}
+		Files.delete(snapshotZip.toPath());
+		return snapshot;
+	}
+
+	/**
+	 * @return the SHA-256 of the original zip (NOT of the rebuilt zip)
+	 */
+	@NotNull
+	public String getOriginalSha256(@NotNull String snapshot) {
+		return readManifestRecords(snapshot).get(0)[2];
+	}
+
+	@NotNull
+	public List<String> getSnapshots() {
+		final List<String> snapshots = new ArrayList<>();
+		final String[] names = this.snapshotsDir.list((dir, name) -> name.endsWith(MANIFEST_EXTENSION));
+		if (names != null) {
+			for (String name : names) {
+				snapshots.add(name.substring(0, name.length() - MANIFEST_EXTENSION.length()));
+			}
+		}
+		Collections.sort(snapshots);
+		return snapshots;
+	}
+
+	@NotNull
+	public List<String> getFileNames(@NotNull String snapshot) {
+		final List<String> fileNames = new ArrayList<>();
+		for (FileManifest file : readManifest(snapshot)) {
+			fileNames.add(file.name);
+		}
+		return fileNames;
+	}
+
+	// same files & contents, NOT the same zip bytes (compression, headers...)
+	public void rebuild(@NotNull String snapshot, @NotNull File outputZip) throws IOException {
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(outputZip.toPath()))) {
+			for (FileManifest file : readManifest(snapshot)) {
+				final ZipEntry entry = new ZipEntry(file.name);
+				if (file.time >= 0L) {
+					entry.setTime(file.time);
+				}
+				zip.putNextEntry(entry);
+				try (InputStream in = new ChunksInputStream(file.chunkHashes.iterator())) {
+					copy(in, zip);
+				}
+				zip.closeEntry();
+			}
+		}
+	}
+
+	/**
+	 * Streams a single file of a snapshot, chunk by chunk.
+	 */
+	@NotNull
+	public InputStream openFile(@NotNull String snapshot, @NotNull String fileName) {
+		for (FileManifest file : readManifest(snapshot)) {
+			if (file.name.equals(fileName)) {
+				return new ChunksInputStream(file.chunkHashes.iterator());
+			}
+		}
+		throw new MTLog.Fatal("No file '%s' in snapshot '%s'!", fileName, snapshot);
+	}
+
+	// Gear content-defined chunking: cut when the rolling hash matches the mask (between min & max size)
+	private static final class ChunkReader {
+
+		@NotNull
+		private final InputStream in;
+		@NotNull
+		private final byte[] buffer = new byte[MAX_CHUNK_SIZE];
+		private int bufferStart = 0;
+		private int bufferEnd = 0;
+		private boolean eof = false;
+
+		private ChunkReader(@NotNull InputStream in) {
+			this.in = in;
+		}
+
+		@Nullable
+		byte[] next() throws IOException {
+			fill();
+			final int available = this.bufferEnd - this.bufferStart;
+			if (available == 0) {
+				return null;
+			}
+			int cut = available;
+			long hash = 0L;
+			for (int i = MIN_CHUNK_SIZE; i < available; i++) {
+				hash = (hash << 1) + GEAR[this.buffer[this.bufferStart + i] & 0xFF];
+				if ((hash & CHUNK_MASK) == 0L) {
+					cut = i + 1;
+					break;
+				}
+			}
+			final byte[] chunk = Arrays.copyOfRange(this.buffer, this.bufferStart, this.bufferStart + cut);
+			this.bufferStart += cut;
+			return chunk;
+		}
+
+		private void fill() throws IOException {
+			if (this.bufferStart > 0) {
+				System.arraycopy(this.buffer, this.bufferStart, this.buffer, 0, this.bufferEnd - this.bufferStart);
+				this.bufferEnd -= this.bufferStart;
+				this.bufferStart = 0;
+			}
+			while (!this.eof && this.bufferEnd < this.buffer.length) {
+				final int read = this.in.read(this.buffer, this.bufferEnd, this.buffer.length - this.bufferEnd);
+				if (read < 0) {
+					this.eof = true;
+				} else {
+					this.bufferEnd += read;
+				}
+			}
+		}
+	}
+
+	private final class ChunksInputStream extends InputStream {
+
+		@NotNull
+		private final Iterator<String> chunkHashes;
+		@Nullable
+		private InputStream current;
+
+		private ChunksInputStream(@NotNull Iterator<String> chunkHashes) {
+			this.chunkHashes = chunkHashes;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final byte[] one = new byte[1];
+			final int read = read(one, 0, 1);
+			return read < 0 ? -1 : one[0] & 0xFF;
+		}
+
+		@Override
+		public int read(@NotNull byte[] b, int off, int len) throws IOException {
+			while (true) {
+				if (this.current == null) {
+					if (!this.chunkHashes.hasNext()) {
+						return -1;
+					}
+					this.current = openChunk(this.chunkHashes.next());
+				}
+				final int read = this.current.read(b, off, len);
+				if (read >= 0) {
+					return read;
+				}
+				this.current.close();
+				this.current = null;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (this.current != null) {
+				this.current.close();
+				this.current = null;
+			}
+		}
+	}
+
+	@NotNull
+	private File getChunkFile(@NotNull String hash) {
+		return new File(new File(this.chunksDir, hash.substring(0, 2)), hash);
+	}
+
+	@NotNull
+	private InputStream openChunk(@NotNull String hash) throws IOException {
+		return new InflaterInputStream(new BufferedInputStream(Files.newInputStream(getChunkFile(hash).toPath())));
+	}
+
+	/**
+	 * @return true if the chunk was new
+	 */
+	private boolean writeChunk(@NotNull String hash, @NotNull byte[] chunk) throws IOException {
+		final File chunkFile = getChunkFile(hash);
+		if (chunkFile.exists()) {
+			return false;
+		}
+		Files.createDirectories(chunkFile.getParentFile().toPath());
+		final File tmpFile = new File(chunkFile.getParentFile(), hash + ".tmp");
+		try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(tmpFile.toPath()))) {
+			out.write(chunk);
+		}
+		Files.move(tmpFile.toPath(), chunkFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return true;
+	}
+
+	// 1st line: 'original zip name',size,sha256
+	// then 1 line per file: 'name',time,size,hash,hash...
+	private void writeManifest(@NotNull String snapshot,
+							   @NotNull String originalName, long originalSize, @NotNull String originalSha256,
+							   @NotNull List<FileManifest> files) throws IOException {
+		Files.createDirectories(this.snapshotsDir.toPath());
+		try (BufferedWriter writer = Files.newBufferedWriter(new File(this.snapshotsDir, snapshot + MANIFEST_EXTENSION).toPath(), StandardCharsets.UTF_8)) {
+			writer.write("'" + originalName.replace("'", "''") + "'," + originalSize + "," + originalSha256);
+			writer.newLine();
+			for (FileManifest file : files) {
+				writer.write("'" + file.name.replace("'", "''") + "'," + file.time + "," + file.size);
+				for (String hash : file.chunkHashes) {
+					writer.write("," + hash);
+				}
+				writer.newLine();
+			}
+		}
+	}
+
+	@NotNull
+	private List<String[]> readManifestRecords(@NotNull String snapshot) {
+		final File manifestFile = new File(this.snapshotsDir, snapshot + MANIFEST_EXTENSION);
+		if (!manifestFile.exists()) {
+			throw new MTLog.Fatal("Unknown snapshot '%s'!", snapshot);
+		}
+		final List<String[]> records = GTFSRawResources.readAll(manifestFile);
+		if (records.isEmpty() || records.get(0).length != 3) {
+			throw new MTLog.Fatal("Snapshot '%s' manifest without original zip!", snapshot);
+		}
+		return records;
+	}
+
+	@NotNull
+	private List<FileManifest> readManifest(@NotNull String snapshot) {
+		final List<String[]> records = readManifestRecords(snapshot);
+		final List<FileManifest> files = new ArrayList<>();
+		for (String[] record : records.subList(1, records.size())) {
+			files.add(new FileManifest(record[0], Long.parseLong(record[1]), Long.parseLong(record[2]),
+					Arrays.asList(record).subList(3, record.length)));
+		}
+		return files;
+	}
+
+	private static void copy(@NotNull InputStream in, @NotNull OutputStream out) throws IOException {
+		final byte[] buffer = new byte[MAX_CHUNK_SIZE];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.mtransit.parser.MTLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the first launch import of the raw CSV files (row by row, like the app)
+ * with copying the pre-indexed database image (see {@link DatabaseImageBuilder}, same class path & schema SQL file).
+ * <p>
+ * Usage: {@code DatabaseImageBenchmark <raw dir> <file base> <schema SQL file> <db image file> <work dir> <iterations>}
+ */
+@SuppressWarnings("WeakerAccess")
+public final class DatabaseImageBenchmark {
+
+	public static void main(@NotNull String[] args) throws IOException, SQLException {
+		if (args.length < 6) {
+			throw new MTLog.Fatal("Usage: DatabaseImageBenchmark <raw dir> <file base> <schema SQL file> <db image file> <work dir> <iterations>");
+		}
+		final File rawDir = new File(args[0]);
+		final String fileBase = args[1];
+		final DatabaseImageBuilder.Schema schema = DatabaseImageBuilder.readSchema(new File(args[2]));
+		final File dbImage = new File(args[3]);
+		final File workDir = new File(args[4]);
+		final int iterations = Integer.parseInt(args[5]);
+		Files.createDirectories(workDir.toPath());
+		final long[] csvImportMs = new long[iterations];
+		final long[] copyInMs = new long[iterations];
+		int csvRows = 0;
+		int copyRows = 0;
+		for (int i = 0; i < iterations; i++) {
+			final File csvDb = new File(workDir, "csv_import.db");
+			Files.deleteIfExists(csvDb.toPath());
+			long startNs = System.nanoTime();
+			try (Connection connection = DriverManager.getConnection(DatabaseImageBuilder.JDBC_URL_PREFIX + csvDb.getAbsolutePath())) {
+				DatabaseImageBuilder.createTables(connection, schema);
+				csvRows = DatabaseImageBuilder.importAll(connection, rawDir, fileBase, false);
+				DatabaseImageBuilder.createIndexes(connection, schema);
+			}
+			csvImportMs[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+			final File copyDb = new File(workDir, "copy_in.db");
+			startNs = System.nanoTime();
+			Files.copy(dbImage.toPath(), copyDb.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			try (Connection connection = DriverManager.getConnection(DatabaseImageBuilder.JDBC_URL_PREFIX + copyDb.getAbsolutePath())) {
+				copyRows = countTripStops(connection); // DB ready to query
+			}
+			copyInMs[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+		}
+		MTLog.log("CSV import (%d rows): median %d ms (min %d ms).", csvRows, median(csvImportMs), min(csvImportMs));
+		MTLog.log("Copy-in (%d trip stops, %d bytes): median %d ms (min %d ms).", copyRows, dbImage.length(), median(copyInMs), min(copyInMs));
+	}
+
+	private static int countTripStops(@NotNull Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+			 ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM trip_stops")) {
+			return resultSet.next() ? resultSet.getInt(1) : 0;
+		}
+	}
+
+	private static long median(@NotNull long[] values) {
+		final long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	private static long min(@NotNull long[] values) {
+		return Arrays.stream(values).min().orElse(0L);
+	}
+}
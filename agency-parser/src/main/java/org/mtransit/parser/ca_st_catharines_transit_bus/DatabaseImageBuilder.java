@@ -0,0 +1,269 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.mtransit.parser.MTLog;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ready-to-copy & indexed SQLite database image of the generated "res-*&#47;raw" files
+ * (current_gtfs_rts_routes / trips / stops / trip_stops & current_gtfs_schedule_service_dates),
+ * built on the build host with a plain JDBC SQLite driver.
+ * <p>
+ * The schema (tables, android_metadata & indexes) comes from the versioned gtfs_rts_db_schema.sql next to this class
+ * and user_version from gtfs_rts_db_version in gtfs_rts_values.xml.
+ * Each raw field is bound to a named column: the build fails if a column is missing from the schema.
+ * <p>
+ * The per-stop schedule & path files (current_gtfs_schedule_stop_*, current_gtfs_rts_paths...) have no app table and stay raw.
+ * <p>
+ * Class path: org.xerial:sqlite-jdbc AND org.slf4j:slf4j-api (required by sqlite-jdbc 3.46+: without it, the driver
+ * does NOT register and the connection fails with "No suitable driver").
+ * <p>
+ * Usage: {@code DatabaseImageBuilder <raw dir> <file base> <schema SQL file> <gtfs_rts_values.xml> <output db file>}
+ */
+@SuppressWarnings("WeakerAccess")
+public final class DatabaseImageBuilder {
+
+	public static void main(@NotNull String[] args) throws IOException {
+		if (args.length < 5) {
+			throw new MTLog.Fatal("Usage: DatabaseImageBuilder <raw dir> <file base> <schema SQL file> <gtfs_rts_values.xml> <output db file>");
+		}
+		final File dbFile = new File(args[4]);
+		build(new File(args[0]), args[1], readSchema(new File(args[2])), readDbVersion(new File(args[3])), dbFile);
+		MTLog.log("Database image '%s' generated (%d bytes).", dbFile, dbFile.length());
+	}
+
+	static final String JDBC_URL_PREFIX = "jdbc:sqlite:";
+
+	private static final int BATCH_SIZE = 1_000;
+
+	private static final String DB_VERSION_RES_NAME = "gtfs_rts_db_version";
+
+	static final class Table {
+
+		@NotNull
+		private final String name;
+		@NotNull
+		private final String resource;
+		@NotNull
+		private final String[] columns; // raw record field -> app column (service dates: 1 row per date)
+
+		Table(@NotNull String name, @NotNull String resource, @NotNull String... columns) {
+			this.name = name;
+			this.resource = resource;
+			this.columns = columns;
+		}
+	}
+
+	static final Table[] TABLES = new Table[]{
+			new Table("route", GTFSRawResources.RTS_ROUTES, "_id", "short_name", "long_name", "color", "original_id_hash", "type"),
+			new Table("trip", GTFSRawResources.RTS_TRIPS, "_id", "headsign_type", "headsign_value", "route_id"),
+			new Table("stop", GTFSRawResources.RTS_STOPS, "_id", "code", "name", "lat", "lng", "accessible", "original_id_hash"),
+			new Table("trip_stops", GTFSRawResources.RTS_TRIP_STOPS, "trip_id", "stop_id", "stop_sequence", "no_pickup", "no_drop_off"),
+			new Table("service_dates", GTFSRawResources.SCHEDULE_SERVICE_DATES, "service_id", "date", "exception_type"),
+	};
+
+	// app database schema (read from the schema SQL file)
+	static final class Schema {
+
+		@NotNull
+		private final List<String> tablesSql = new ArrayList<>(); // tables & android_metadata
+		@NotNull
+		private final List<String> indexesSql = new ArrayList<>(); // after import
+	}
+
+	@NotNull
+	static Schema readSchema(@NotNull File schemaFile) {
+		final Schema schema = new Schema();
+		try {
+			final String sql = new String(Files.readAllBytes(schemaFile.toPath()), StandardCharsets.UTF_8);
+			final StringBuilder withoutComments = new StringBuilder();
+			for (String line : sql.split("\\R")) {
+				if (!line.trim().startsWith("--")) {
+					withoutComments.append(line).append('\n');
+				}
+			}
+			for (String statement : withoutComments.toString().split(";")) {
+				if (statement.trim().isEmpty()) {
+					continue;
+				}
+				if (statement.trim().toUpperCase(Locale.ENGLISH).matches("CREATE\\s+(UNIQUE\\s+)?INDEX\\s.*")) {
+					schema.indexesSql.add(statement.trim());
+				} else {
+					schema.tablesSql.add(statement.trim());
+				}
+			}
+		} catch (IOException ioe) {
+			throw new MTLog.Fatal(ioe, "Error while reading schema '%s'!", schemaFile);
+		}
+		checkSchema(schema, schemaFile);
+		return schema;
+	}
+
+	// every raw field must be bound to a schema column
+	private static void checkSchema(@NotNull Schema schema, @NotNull File schemaFile) {
+		final List<String> missing = new ArrayList<>();
+		try (Connection connection = DriverManager.getConnection(JDBC_URL_PREFIX + ":memory:")) {
+			createTables(connection, schema);
+			try (Statement statement = connection.createStatement()) {
+				for (Table table : TABLES) {
+					final List<String> columns = new ArrayList<>();
+					try (ResultSet resultSet = statement.executeQuery("PRAGMA table_info('" + table.name + "')")) {
+						while (resultSet.next()) {
+							columns.add(resultSet.getString("name"));
+						}
+					}
+					for (String column : table.columns) {
+						if (!columns.contains(column)) {
+							missing.add(table.name + "." + column + " (" + table.resource + ")");
+						}
+					}
+				}
+			}
+		} catch (SQLException sqle) {
+			throw new MTLog.Fatal(sqle, "Error while checking schema '%s'!", schemaFile);
+		}
+		if (!missing.isEmpty()) {
+			throw new MTLog.Fatal("Schema '%s' does NOT have the raw files columns: %s!", schemaFile, missing);
+		}
+	}
+
+	static int readDbVersion(@NotNull File valuesXmlFile) {
+		try {
+			final NodeList integers = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(valuesXmlFile)
+					.getElementsByTagName("integer");
+			for (int i = 0; i < integers.getLength(); i++) {
+				final Element integer = (Element) integers.item(i);
+				if (DB_VERSION_RES_NAME.equals(integer.getAttribute("name"))) {
+					return Integer.parseInt(integer.getTextContent().trim());
+				}
+			}
+		} catch (IOException | ParserConfigurationException | SAXException | NumberFormatException e) {
+			throw new MTLog.Fatal(e, "Error while reading '%s' from '%s'!", DB_VERSION_RES_NAME, valuesXmlFile);
+		}
+		throw new MTLog.Fatal("No '%s' in '%s'!", DB_VERSION_RES_NAME, valuesXmlFile);
+	}
+
+	public static void build(@NotNull File rawDir, @NotNull String fileBase, @NotNull Schema schema, int dbVersion, @NotNull File dbFile) throws IOException {
+		Files.deleteIfExists(dbFile.toPath());
+		try (Connection connection = DriverManager.getConnection(JDBC_URL_PREFIX + dbFile.getAbsolutePath())) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("PRAGMA journal_mode = OFF");
+				statement.execute("PRAGMA synchronous = OFF");
+			}
+			createTables(connection, schema);
+			importAll(connection, rawDir, fileBase, true);
+			createIndexes(connection, schema);
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("PRAGMA user_version = " + dbVersion);
+				statement.execute("ANALYZE");
+				statement.execute("VACUUM");
+			}
+		} catch (SQLException sqle) {
+			throw new MTLog.Fatal(sqle, "Error while building database image '%s'!", dbFile);
+		}
+	}
+
+	static void createTables(@NotNull Connection connection, @NotNull Schema schema) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			for (String sql : schema.tablesSql) {
+				statement.execute(sql);
+			}
+		}
+	}
+
+	static void createIndexes(@NotNull Connection connection, @NotNull Schema schema) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			for (String sql : schema.indexesSql) {
+				statement.execute(sql);
+			}
+		}
+	}
+
+	/**
+	 * @param batch true to use JDBC batches, false to insert row by row (like the app CSV import)
+	 * @return number of rows inserted
+	 */
+	static int importAll(@NotNull Connection connection, @NotNull File rawDir, @NotNull String fileBase, boolean batch) throws SQLException {
+		final boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		int rows = 0;
+		try {
+			for (Table table : TABLES) {
+				final File file = GTFSRawResources.getFile(rawDir, fileBase, table.resource);
+				if (!file.exists()) {
+					continue; // optional
+				}
+				rows += importTable(connection, table, file, batch);
+			}
+			connection.commit();
+		} catch (SQLException sqle) {
+			connection.rollback();
+			throw sqle;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+		return rows;
+	}
+
+	private static int importTable(@NotNull Connection connection, @NotNull Table table, @NotNull File file, boolean batch) throws SQLException {
+		final String[] placeholders = new String[table.columns.length];
+		Arrays.fill(placeholders, "?");
+		int rows = 0;
+		try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table.name
+				+ " (" + String.join(", ", table.columns) + ") VALUES (" + String.join(", ", placeholders) + ")")) {
+			for (String[] record : GTFSRawResources.readAll(file)) {
+				if (GTFSRawResources.SCHEDULE_SERVICE_DATES.equals(table.resource)) {
+					// 'service_id',date,exception_type,date,exception_type...
+					for (int i = 1; i + 1 < record.length; i += 2) {
+						insert.setString(1, record[0]);
+						insert.setInt(2, Integer.parseInt(record[i]));
+						insert.setInt(3, Integer.parseInt(record[i + 1]));
+						execute(insert, batch, rows++);
+					}
+					continue;
+				}
+				if (record.length != table.columns.length) {
+					throw new MTLog.Fatal("Unexpected '%s' record '%s' (%d columns expected)!", file, String.join(",", record), table.columns.length);
+				}
+				for (int c = 0; c < record.length; c++) {
+					insert.setString(c + 1, record[c]); // column type affinity converts numbers
+				}
+				execute(insert, batch, rows++);
+			}
+			if (batch) {
+				insert.executeBatch();
+			}
+		}
+		return rows;
+	}
+
+	private static void execute(@NotNull PreparedStatement insert, boolean batch, int rowIndex) throws SQLException {
+		if (!batch) {
+			insert.executeUpdate();
+			return;
+		}
+		insert.addBatch();
+		if ((rowIndex + 1) % BATCH_SIZE == 0) {
+			insert.executeBatch();
+		}
+	}
+}
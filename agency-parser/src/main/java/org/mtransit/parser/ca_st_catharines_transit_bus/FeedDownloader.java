@@ -0,0 +1,251 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.mtransit.parser.MTLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Conditional (If-None-Match / If-Modified-Since) & streaming download of the GTFS feed.
+ * <p>
+ * The body is hashed while written to disk and compared to the last archived snapshot
+ * so that unzip & parsing can be skipped when nothing changed
+ * (archived zips may be Git LFS pointers: their object ID is the zip SHA-256;
+ * snapshots moved to the {@link ArchiveChunkStore} are compared with their original zip SHA-256).
+ * <p>
+ * The ETag / Last-Modified validators are stored with the hash of their body and only sent
+ * (and a 304 trusted) once that body is the last archived snapshot: the validators of a changed feed
+ * are kept pending until the snapshot is archived, so a failed parse is retried on the next run.
+ * <p>
+ * Usage: {@code FeedDownloader <input URL file> <archive dir> <output file>}
+ * (exit code {@link #EXIT_CODE_UNCHANGED} when the feed did NOT change)
+ */
+@SuppressWarnings("WeakerAccess")
+public final class FeedDownloader {
+
+	public static void main(@NotNull String[] args) throws IOException {
+		if (args.length < 3) {
+			throw new MTLog.Fatal("Usage: FeedDownloader <input URL file> <archive dir> <output file>");
+		}
+		final String inputUrl = new String(Files.readAllBytes(new File(args[0]).toPath()), StandardCharsets.UTF_8).trim();
+		final Result result = new FeedDownloader(new URL(inputUrl), new File(args[1])).download(new File(args[2]));
+		MTLog.log("Feed '%s': %s.", inputUrl, result);
+		if (result != Result.CHANGED) {
+			System.exit(EXIT_CODE_UNCHANGED);
+		}
+	}
+
+	public static final int EXIT_CODE_UNCHANGED = 3;
+
+	public enum Result {
+		NOT_MODIFIED, // HTTP 304
+		UNCHANGED, // same content as last archived snapshot
+		CHANGED,
+	}
+
+	static final String STATE_FILE_NAME = "input_url_state.properties";
+
+	private static final String KEY_ETAG = "etag";
+	private static final String KEY_LAST_MODIFIED = "last_modified";
+	private static final String KEY_VALIDATORS_SHA256 = "validators_sha256";
+	private static final String KEY_PENDING_ETAG = "pending_etag";
+	private static final String KEY_PENDING_LAST_MODIFIED = "pending_last_modified";
+	private static final String KEY_PENDING_SHA256 = "pending_sha256";
+
+	private static final int LFS_POINTER_MAX_SIZE = 1024; // https://github.com/git-lfs/git-lfs/blob/main/docs/spec.md
+	private static final String LFS_POINTER_VERSION = "version https://git-lfs.github.com/spec/";
+	private static final String LFS_POINTER_OID_SHA256 = "oid sha256:";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int TIMEOUT_IN_MS = 60 * 1000;
+
+	@NotNull
+	private final URL url;
+	@NotNull
+	private final File archiveDir;
+	@NotNull
+	private final ArchiveChunkStore store;
+	@NotNull
+	private final File stateFile;
+
+	public FeedDownloader(@NotNull URL url, @NotNull File archiveDir) {
+		this(url, archiveDir,
+				new File(archiveDir.getAbsoluteFile().getParentFile(), ArchiveChunkStore.STORE_DIR_NAME),
+				new File(archiveDir.getAbsoluteFile().getParentFile(), STATE_FILE_NAME));
+	}
+
+	public FeedDownloader(@NotNull URL url, @NotNull File archiveDir, @NotNull File storeDir, @NotNull File stateFile) {
+		this.url = url;
+		this.archiveDir = archiveDir;
+		this.store = new ArchiveChunkStore(storeDir);
+		this.stateFile = stateFile;
+	}
+
+	@NotNull
+	public Result download(@NotNull File outputFile) throws IOException {
+		final Properties state = readState();
+		final String lastArchivedSha256 = getLastArchivedSha256();
+		promotePendingValidators(state, lastArchivedSha256);
+		// validators only valid for the last archived body
+		final boolean conditional = lastArchivedSha256 != null && lastArchivedSha256.equals(state.getProperty(KEY_VALIDATORS_SHA256));
+		final HttpURLConnection connection = (HttpURLConnection) this.url.openConnection();
+		try {
+			connection.setConnectTimeout(TIMEOUT_IN_MS);
+			connection.setReadTimeout(TIMEOUT_IN_MS);
+			if (conditional) {
+				final String etag = state.getProperty(KEY_ETAG);
+				if (etag != null) {
+					connection.setRequestProperty("If-None-Match", etag);
+				}
+				final String lastModified = state.getProperty(KEY_LAST_MODIFIED);
+				if (lastModified != null) {
+					connection.setRequestProperty("If-Modified-Since", lastModified);
+				}
+			}
+			final int responseCode = connection.getResponseCode();
+			if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && conditional) {
+				writeState(state);
+				return Result.NOT_MODIFIED;
+			}
+			if (responseCode != HttpURLConnection.HTTP_OK) {
+				throw new IOException("Unexpected HTTP response " + responseCode + " from '" + this.url + "'!");
+			}
+			final File tmpFile = new File(outputFile.getAbsoluteFile().getParentFile(), outputFile.getName() + ".part");
+			final String sha256;
+			try (InputStream in = connection.getInputStream()) {
+				sha256 = copyAndHash(in, tmpFile, connection.getContentLengthLong());
+			} catch (IOException ioe) {
+				Files.deleteIfExists(tmpFile.toPath());
+				throw ioe;
+			}
+			final String etag = connection.getHeaderField("ETag");
+			final String lastModified = connection.getHeaderField("Last-Modified");
+			final boolean unchanged = sha256.equals(lastArchivedSha256);
+			if (unchanged) {
+				Files.delete(tmpFile.toPath());
+				setValidators(state, KEY_ETAG, KEY_LAST_MODIFIED, KEY_VALIDATORS_SHA256, etag, lastModified, sha256);
+				setValidators(state, KEY_PENDING_ETAG, KEY_PENDING_LAST_MODIFIED, KEY_PENDING_SHA256, null, null, null);
+			} else {
+				Files.move(tmpFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				// saved once archived (NOT before the feed is parsed)
+				setValidators(state, KEY_PENDING_ETAG, KEY_PENDING_LAST_MODIFIED, KEY_PENDING_SHA256, etag, lastModified, sha256);
+			}
+			writeState(state);
+			return unchanged ? Result.UNCHANGED : Result.CHANGED;
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static void promotePendingValidators(@NotNull Properties state, @Nullable String lastArchivedSha256) {
+		final String pendingSha256 = state.getProperty(KEY_PENDING_SHA256);
+		if (pendingSha256 == null || !pendingSha256.equals(lastArchivedSha256)) {
+			return; // NOT archived (yet)
+		}
+		setValidators(state, KEY_ETAG, KEY_LAST_MODIFIED, KEY_VALIDATORS_SHA256,
+				state.getProperty(KEY_PENDING_ETAG), state.getProperty(KEY_PENDING_LAST_MODIFIED), pendingSha256);
+		setValidators(state, KEY_PENDING_ETAG, KEY_PENDING_LAST_MODIFIED, KEY_PENDING_SHA256, null, null, null);
+	}
+
+	private static void setValidators(@NotNull Properties state,
+									  @NotNull String etagKey, @NotNull String lastModifiedKey, @NotNull String sha256Key,
+									  @Nullable String etag, @Nullable String lastModified, @Nullable String sha256) {
+		setOrRemove(state, etagKey, sha256 == null ? null : etag);
+		setOrRemove(state, lastModifiedKey, sha256 == null ? null : lastModified);
+		setOrRemove(state, sha256Key, sha256);
+	}
+
+	@NotNull
+	private static String copyAndHash(@NotNull InputStream in, @NotNull File file, long expectedLength) throws IOException {
+		final MessageDigest md = SHA256.newDigest();
+		long length = 0L;
+		try (OutputStream out = Files.newOutputStream(file.toPath())) {
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				md.update(buffer, 0, read);
+				out.write(buffer, 0, read);
+				length += read;
+			}
+		}
+		if (expectedLength >= 0L && length != expectedLength) {
+			throw new IOException("Truncated download: " + length + " bytes instead of " + expectedLength + "!");
+		}
+		return SHA256.toHex(md.digest());
+	}
+
+	// last archived snapshot = last name (YYYYMMDD-YYYYMMDD), archive/*.zip or store snapshot
+	@Nullable
+	private String getLastArchivedSha256() throws IOException {
+		final File[] archives = this.archiveDir.listFiles((dir, name) -> name.endsWith(ArchiveChunkStore.ZIP_EXTENSION));
+		File lastArchive = null;
+		if (archives != null && archives.length > 0) {
+			Arrays.sort(archives);
+			lastArchive = archives[archives.length - 1];
+		}
+		final List<String> snapshots = this.store.getSnapshots();
+		final String lastSnapshot = snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+		if (lastSnapshot != null
+				&& (lastArchive == null || (lastSnapshot + ArchiveChunkStore.ZIP_EXTENSION).compareTo(lastArchive.getName()) > 0)) {
+			return this.store.getOriginalSha256(lastSnapshot);
+		}
+		return lastArchive == null ? null : getArchiveSha256(lastArchive);
+	}
+
+	// Git LFS pointer (no "git lfs pull") => object ID = SHA-256 of the archived zip
+	@NotNull
+	static String getArchiveSha256(@NotNull File archive) throws IOException {
+		if (archive.length() <= LFS_POINTER_MAX_SIZE) {
+			// NOT Files.readAllLines(): small zips are NOT valid UTF-8
+			final String content = new String(Files.readAllBytes(archive.toPath()), StandardCharsets.US_ASCII);
+			if (content.startsWith(LFS_POINTER_VERSION)) {
+				for (String line : content.split("\n")) {
+					if (line.startsWith(LFS_POINTER_OID_SHA256)) {
+						return line.substring(LFS_POINTER_OID_SHA256.length()).trim();
+					}
+				}
+				throw new MTLog.Fatal("Unexpected Git LFS pointer '%s' (no SHA-256 object ID)!", archive);
+			}
+		}
+		return SHA256.hash(archive);
+	}
+
+	private static void setOrRemove(@NotNull Properties state, @NotNull String key, @Nullable String value) {
+		if (value == null) {
+			state.remove(key);
+		} else {
+			state.setProperty(key, value);
+		}
+	}
+
+	@NotNull
+	private Properties readState() throws IOException {
+		final Properties state = new Properties();
+		if (this.stateFile.exists()) {
+			try (Reader reader = Files.newBufferedReader(this.stateFile.toPath(), StandardCharsets.UTF_8)) {
+				state.load(reader);
+			}
+		}
+		return state;
+	}
+
+	private void writeState(@NotNull Properties state) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(this.stateFile.toPath(), StandardCharsets.UTF_8)) {
+			state.store(writer, null);
+		}
+	}
+}
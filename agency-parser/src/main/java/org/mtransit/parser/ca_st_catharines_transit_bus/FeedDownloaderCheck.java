@@ -0,0 +1,197 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.mtransit.parser.MTLog;
+import org.mtransit.parser.ca_st_catharines_transit_bus.FeedDownloader.Result;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Re-runnable check of {@link FeedDownloader} against a local HTTP stub serving 200, 304 & truncated responses
+ * (conditional requests, archived snapshot comparison incl. Git LFS pointers, partial file clean-up).
+ * <p>
+ * Usage: {@code FeedDownloaderCheck [work dir]} (fails with {@link MTLog.Fatal} on the 1st unexpected result)
+ */
+@SuppressWarnings("WeakerAccess")
+public final class FeedDownloaderCheck {
+
+	public static void main(@NotNull String[] args) throws IOException {
+		final File workDir = args.length > 0 ? new File(args[0]) : Files.createTempDirectory("feed_downloader").toFile();
+		final File archiveDir = new File(workDir, "archive");
+		Files.createDirectories(archiveDir.toPath());
+		final File storeDir = new File(workDir, ArchiveChunkStore.STORE_DIR_NAME);
+		final File stateFile = new File(workDir, FeedDownloader.STATE_FILE_NAME);
+		final File outputFile = new File(workDir, "input.zip");
+		final File partFile = new File(workDir, outputFile.getName() + ".part");
+		final byte[] feedV1 = writeZip("calendar.txt", "WK,1,1,1,1,1,0,0,20260101,20260131");
+		final byte[] feedV2 = writeZip("calendar.txt", "WK,1,1,1,1,1,0,0,20260201,20260228");
+		final StubHandler stub = new StubHandler();
+		HttpServer server = startServer(stub);
+		try {
+			FeedDownloader downloader = new FeedDownloader(getUrl(server), archiveDir, storeDir, stateFile);
+			stub.serve(feedV1, ETAG_V1);
+			// nothing archived
+			check("1st download", Result.CHANGED, downloader.download(outputFile));
+			check("1st download If-None-Match", null, stub.ifNoneMatch);
+			check("1st download output", SHA256.hash(feedV1), SHA256.hash(outputFile));
+			check("1st download partial file", false, partFile.exists());
+			// NOT archived (ex: parsing failed) => NOT skipped
+			check("NOT archived download", Result.CHANGED, downloader.download(outputFile));
+			check("NOT archived download If-None-Match", null, stub.ifNoneMatch);
+			// archived => 304
+			Files.copy(outputFile.toPath(), new File(archiveDir, "20260101-20260131.zip").toPath());
+			check("archived download", Result.NOT_MODIFIED, downloader.download(outputFile));
+			check("archived download If-None-Match", ETAG_V1, stub.ifNoneMatch);
+			// fresh checkout: no state & archive is a Git LFS pointer => compared with its object ID
+			Files.delete(stateFile.toPath());
+			Files.write(new File(archiveDir, "20260101-20260131.zip").toPath(), (""
+					+ "version https://git-lfs.github.com/spec/v1\n"
+					+ "oid sha256:" + SHA256.hash(feedV1) + "\n"
+					+ "size " + feedV1.length + "\n").getBytes(StandardCharsets.UTF_8));
+			check("LFS pointer download", Result.UNCHANGED, downloader.download(outputFile));
+			check("LFS pointer download If-None-Match", null, stub.ifNoneMatch);
+			check("LFS pointer 2nd download", Result.NOT_MODIFIED, downloader.download(outputFile));
+			// new feed, truncated response => rejected, partial file removed
+			stub.serve(feedV2, ETAG_V2);
+			stub.truncated = new CountDownLatch(1);
+			final HttpServer truncatingServer = server;
+			final Thread connectionLoss = new Thread(() -> {
+				try {
+					stub.truncated.await();
+				} catch (InterruptedException ignored) {
+					Thread.currentThread().interrupt();
+				}
+				truncatingServer.stop(0); // closes the connection before Content-Length is reached
+			});
+			connectionLoss.start();
+			try {
+				downloader.download(outputFile);
+				throw new MTLog.Fatal("Truncated response NOT rejected!");
+			} catch (IOException expected) {
+				MTLog.log("Truncated response rejected: %s", expected.getMessage());
+			}
+			joinQuietly(connectionLoss);
+			stub.truncated = null;
+			server = startServer(stub);
+			downloader = new FeedDownloader(getUrl(server), archiveDir, storeDir, stateFile);
+			check("truncated download partial file", false, partFile.exists());
+			check("truncated download output", SHA256.hash(feedV1), SHA256.hash(outputFile));
+			// new feed
+			check("new feed download", Result.CHANGED, downloader.download(outputFile));
+			check("new feed download If-None-Match", ETAG_V1, stub.ifNoneMatch);
+			check("new feed download output", SHA256.hash(feedV2), SHA256.hash(outputFile));
+			// new feed NOT archived => NOT skipped
+			check("new feed NOT archived download", Result.CHANGED, downloader.download(outputFile));
+			check("new feed NOT archived download If-None-Match", ETAG_V1, stub.ifNoneMatch);
+			// new feed archived => 304
+			Files.copy(outputFile.toPath(), new File(archiveDir, "20260201-20260228.zip").toPath());
+			check("new feed archived download", Result.NOT_MODIFIED, downloader.download(outputFile));
+			check("new feed archived download If-None-Match", ETAG_V2, stub.ifNoneMatch);
+			// archived zip moved to the chunk store => compared with the original zip SHA-256 (NOT the rebuilt zip)
+			new ArchiveChunkStore(storeDir).move(new File(archiveDir, "20260201-20260228.zip"));
+			Files.delete(stateFile.toPath());
+			check("stored download", Result.UNCHANGED, downloader.download(outputFile));
+			check("stored 2nd download", Result.NOT_MODIFIED, downloader.download(outputFile));
+		} finally {
+			server.stop(0);
+		}
+		MTLog.log("Feed downloader check: OK (%s).", workDir);
+	}
+
+	private static final String ETAG_V1 = "\"v1\"";
+	private static final String ETAG_V2 = "\"v2\"";
+
+	@NotNull
+	private static HttpServer startServer(@NotNull StubHandler stub) throws IOException {
+		final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", stub);
+		server.start();
+		return server;
+	}
+
+	@NotNull
+	private static URL getUrl(@NotNull HttpServer server) throws IOException {
+		return new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), "/gtfs.zip");
+	}
+
+	private static void joinQuietly(@NotNull Thread thread) {
+		try {
+			thread.join();
+		} catch (InterruptedException ignored) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// 304 if If-None-Match matches, 200 otherwise (truncated: half the body, then counted down for the server to stop)
+	private static final class StubHandler implements HttpHandler {
+
+		@NotNull
+		private volatile byte[] body = new byte[0];
+		@NotNull
+		private volatile String etag = "";
+		@Nullable
+		private volatile CountDownLatch truncated;
+		@Nullable
+		private volatile String ifNoneMatch;
+
+		private void serve(@NotNull byte[] body, @NotNull String etag) {
+			this.body = body;
+			this.etag = etag;
+		}
+
+		@Override
+		public void handle(@NotNull HttpExchange exchange) throws IOException {
+			this.ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+			exchange.getResponseHeaders().set("ETag", this.etag);
+			if (this.etag.equals(this.ifNoneMatch)) {
+				exchange.sendResponseHeaders(304, -1L);
+				exchange.close();
+				return;
+			}
+			exchange.sendResponseHeaders(200, this.body.length);
+			final OutputStream out = exchange.getResponseBody();
+			final CountDownLatch truncated = this.truncated;
+			if (truncated != null) {
+				out.write(this.body, 0, this.body.length / 2);
+				out.flush();
+				truncated.countDown(); // response NOT closed
+				return;
+			}
+			out.write(this.body);
+			out.close();
+		}
+	}
+
+	@NotNull
+	private static byte[] writeZip(@NotNull String name, @NotNull String content) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+			zip.putNextEntry(new ZipEntry(name));
+			zip.write(content.getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void check(@NotNull String what, @Nullable Object expected, @Nullable Object actual) {
+		if (!Objects.equals(expected, actual)) {
+			throw new MTLog.Fatal("Unexpected %s: %s instead of %s!", what, actual, expected);
+		}
+	}
+}
@@ -0,0 +1,339 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.mtransit.parser.MTLog;
+import org.mtransit.parser.ca_st_catharines_transit_bus.ServicePeriodIntervalTree.ServicePeriod;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Merges the current & next feeds schedules: service periods (runs of consecutive active days) of both feeds go in 1 interval tree,
+ * overlapping periods are trimmed at the cut-over date (first day of the next feed)
+ * and a per-day feed selection table is emitted.
+ * <p>
+ * The feed owning each date range is computed once with a sweep over the sorted period start & end dates: O(n log n);
+ * trimming queries the tree once per owned range and days are only expanded when the table is written.
+ * <p>
+ * Each feed is either a generated "res-*&#47;raw" directory or an archived GTFS snapshot zip.
+ * <p>
+ * Usage: {@code FeedScheduleMerge <current raw dir|zip> <next raw dir|zip> <output file>}
+ */
+@SuppressWarnings("WeakerAccess")
+public final class FeedScheduleMerge {
+
+	public static void main(@NotNull String[] args) {
+		if (args.length < 3) {
+			throw new MTLog.Fatal("Usage: FeedScheduleMerge <current raw dir|zip> <next raw dir|zip> <output file>");
+		}
+		final List<ServicePeriod> periods = new ArrayList<>();
+		periods.addAll(readPeriods(FEED_CURRENT, new File(args[0]), GTFSRawResources.CURRENT_FILE_BASE));
+		periods.addAll(readPeriods(FEED_NEXT, new File(args[1]), GTFSRawResources.NEXT_FILE_BASE));
+		final FeedScheduleMerge merge = new FeedScheduleMerge(periods);
+		final int days = merge.writeFeedSelection(new File(args[2]));
+		MTLog.log("Feed schedule merge: cut-over %d, %d day(s), %d trimmed period(s).",
+				merge.getCutOverDate(), days, merge.getTrimmedPeriods().size());
+	}
+
+	public static final String FEED_CURRENT = "current";
+	public static final String FEED_NEXT = "next";
+
+	// service dates exception types (generated file)
+	private static final int EXCEPTION_TYPE_DEFAULT = 0;
+	private static final int EXCEPTION_TYPE_ADDED = 1;
+	private static final int EXCEPTION_TYPE_REMOVED = 2;
+
+	// GTFS
+	private static final String CALENDAR_TXT = "calendar.txt";
+	private static final String CALENDAR_DATES_TXT = "calendar_dates.txt";
+	private static final String SERVICE_ID = "service_id";
+	private static final String START_DATE = "start_date";
+	private static final String END_DATE = "end_date";
+	private static final String DATE = "date";
+	private static final String EXCEPTION_TYPE = "exception_type";
+	private static final String GTFS_EXCEPTION_TYPE_ADDED = "1";
+	private static final String GTFS_EXCEPTION_TYPE_REMOVED = "2";
+	private static final String GTFS_SERVICE_AVAILABLE = "1";
+	private static final String[] DAYS_OF_WEEK = new String[]{ // ISO day of week - 1
+			"monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday"
+	};
+
+	@NotNull
+	private final ServicePeriodIntervalTree tree;
+	private final int cutOverDate;
+	@NotNull
+	private final List<FeedRange> feedRanges; // sorted, NOT overlapping, days without service excluded
+
+	public FeedScheduleMerge(@NotNull List<ServicePeriod> periods) {
+		this.tree = new ServicePeriodIntervalTree(periods);
+		int cutOverDate = Integer.MAX_VALUE;
+		for (ServicePeriod period : periods) {
+			if (FEED_NEXT.equals(period.getFeed())) {
+				cutOverDate = Math.min(cutOverDate, period.getStartDate());
+			}
+		}
+		this.cutOverDate = cutOverDate;
+		this.feedRanges = sweepFeedRanges(periods, cutOverDate);
+	}
+
+	private static final class FeedRange {
+
+		@NotNull
+		private final String feed;
+		private final int startDate; // YYYYMMDD, inclusive
+		private int endDate; // YYYYMMDD, inclusive
+
+		private FeedRange(@NotNull String feed, int startDate, int endDate) {
+			this.feed = feed;
+			this.startDate = startDate;
+			this.endDate = endDate;
+		}
+	}
+
+	// active periods count per feed only changes on start dates, day after end dates & cut-over date
+	@NotNull
+	private static List<FeedRange> sweepFeedRanges(@NotNull List<ServicePeriod> periods, int cutOverDate) {
+		final TreeMap<Integer, int[]> deltas = new TreeMap<>(); // date -> {current, next}
+		for (ServicePeriod period : periods) {
+			final int feedIndex = FEED_NEXT.equals(period.getFeed()) ? 1 : 0;
+			deltas.computeIfAbsent(period.getStartDate(), k -> new int[2])[feedIndex]++;
+			deltas.computeIfAbsent(addDays(period.getEndDate(), 1L), k -> new int[2])[feedIndex]--;
+		}
+		if (cutOverDate != Integer.MAX_VALUE) {
+			deltas.computeIfAbsent(cutOverDate, k -> new int[2]);
+		}
+		final List<FeedRange> feedRanges = new ArrayList<>();
+		int currentCount = 0;
+		int nextCount = 0;
+		Map.Entry<Integer, int[]> event = deltas.firstEntry();
+		while (event != null) {
+			currentCount += event.getValue()[0];
+			nextCount += event.getValue()[1];
+			final Map.Entry<Integer, int[]> nextEvent = deltas.higherEntry(event.getKey());
+			final String feed = selectFeed(event.getKey(), currentCount > 0, nextCount > 0, cutOverDate);
+			if (feed != null && nextEvent != null) {
+				final int startDate = event.getKey();
+				final int endDate = addDays(nextEvent.getKey(), -1L);
+				final FeedRange last = feedRanges.isEmpty() ? null : feedRanges.get(feedRanges.size() - 1);
+				if (last != null && last.feed.equals(feed) && addDays(last.endDate, 1L) == startDate) {
+					last.endDate = endDate;
+				} else {
+					feedRanges.add(new FeedRange(feed, startDate, endDate));
+				}
+			}
+			event = nextEvent;
+		}
+		return feedRanges;
+	}
+
+	/**
+	 * @return first day of the next feed ({@link Integer#MAX_VALUE} if none)
+	 */
+	public int getCutOverDate() {
+		return cutOverDate;
+	}
+
+	@Nullable
+	private static String selectFeed(int date, boolean current, boolean next, int cutOverDate) {
+		if (next && (date >= cutOverDate || !current)) {
+			return FEED_NEXT;
+		}
+		return current ? FEED_CURRENT : null;
+	}
+
+	/**
+	 * @return date (YYYYMMDD) -> feed ({@link #FEED_CURRENT} or {@link #FEED_NEXT}), days without service are skipped
+	 */
+	@NotNull
+	public TreeMap<Integer, String> getFeedSelection() {
+		final TreeMap<Integer, String> selection = new TreeMap<>();
+		for (FeedRange feedRange : this.feedRanges) {
+			for (LocalDate day = toLocalDate(feedRange.startDate); toDate(day) <= feedRange.endDate; day = day.plusDays(1L)) {
+				selection.put(toDate(day), feedRange.feed);
+			}
+		}
+		return selection;
+	}
+
+	/**
+	 * @return service periods clipped to the date ranges owned by their feed (current feed periods trimmed where the next feed applies)
+	 */
+	@NotNull
+	public List<ServicePeriod> getTrimmedPeriods() {
+		final List<ServicePeriod> trimmed = new ArrayList<>();
+		for (FeedRange feedRange : this.feedRanges) {
+			for (ServicePeriod period : this.tree.findOverlapping(feedRange.startDate, feedRange.endDate)) {
+				if (period.getFeed().equals(feedRange.feed)) {
+					trimmed.add(new ServicePeriod(period.getFeed(), period.getServiceId(),
+							Math.max(period.getStartDate(), feedRange.startDate), Math.min(period.getEndDate(), feedRange.endDate)));
+				}
+			}
+		}
+		return trimmed;
+	}
+
+	/**
+	 * @return number of days written
+	 */
+	public int writeFeedSelection(@NotNull File file) {
+		int days = 0;
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			for (FeedRange feedRange : this.feedRanges) {
+				for (LocalDate day = toLocalDate(feedRange.startDate); toDate(day) <= feedRange.endDate; day = day.plusDays(1L)) {
+					writer.write(toDate(day) + ",'" + feedRange.feed + "'");
+					writer.newLine();
+					days++;
+				}
+			}
+		} catch (IOException ioe) {
+			throw new MTLog.Fatal(ioe, "Error while writing feed selection to '%s'!", file);
+		}
+		return days;
+	}
+
+	@NotNull
+	public static List<ServicePeriod> readPeriods(@NotNull String feed, @NotNull File source, @NotNull String fileBase) {
+		if (source.isDirectory()) {
+			return readRawPeriods(feed, GTFSRawResources.getFile(source, fileBase, GTFSRawResources.SCHEDULE_SERVICE_DATES));
+		}
+		return readGTFSPeriods(feed, source);
+	}
+
+	// 'service_id',date,exception_type,date,exception_type...
+	@NotNull
+	static List<ServicePeriod> readRawPeriods(@NotNull String feed, @NotNull File serviceDatesFile) {
+		final List<ServicePeriod> periods = new ArrayList<>();
+		for (String[] record : GTFSRawResources.readAll(serviceDatesFile)) {
+			final TreeMap<Integer, Boolean> activeDates = new TreeMap<>();
+			for (int i = 1; i + 1 < record.length; i += 2) {
+				final int date = Integer.parseInt(record[i]);
+				final int exceptionType = Integer.parseInt(record[i + 1]);
+				if (exceptionType == EXCEPTION_TYPE_REMOVED) {
+					activeDates.put(date, false);
+				} else if (exceptionType == EXCEPTION_TYPE_DEFAULT || exceptionType == EXCEPTION_TYPE_ADDED) {
+					activeDates.putIfAbsent(date, true);
+				}
+			}
+			addPeriods(periods, feed, record[0], activeDates);
+		}
+		return periods;
+	}
+
+	// 1 period per run of consecutive active dates (removed dates win, like the generated service dates)
+	private static void addPeriods(@NotNull List<ServicePeriod> periods, @NotNull String feed, @NotNull String serviceId,
+								   @NotNull TreeMap<Integer, Boolean> activeDates) {
+		int start = -1;
+		int end = -1;
+		for (Map.Entry<Integer, Boolean> activeDate : activeDates.entrySet()) {
+			if (!activeDate.getValue()) {
+				continue;
+			}
+			final int date = activeDate.getKey();
+			if (start >= 0 && addDays(end, 1L) != date) {
+				periods.add(new ServicePeriod(feed, serviceId, start, end));
+				start = -1;
+			}
+			if (start < 0) {
+				start = date;
+			}
+			end = date;
+		}
+		if (start >= 0) {
+			periods.add(new ServicePeriod(feed, serviceId, start, end));
+		}
+	}
+
+	@NotNull
+	static List<ServicePeriod> readGTFSPeriods(@NotNull String feed, @NotNull File gtfsZip) {
+		// service ID -> date -> active
+		final TreeMap<String, TreeMap<Integer, Boolean>> serviceDates = new TreeMap<>();
+		try (ZipFile zipFile = new ZipFile(gtfsZip)) {
+			final ZipEntry calendar = zipFile.getEntry(CALENDAR_TXT);
+			if (calendar != null) {
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(calendar), StandardCharsets.UTF_8))) {
+					final Map<String, Integer> header = GTFSCsv.readHeader(reader);
+					String line;
+					while ((line = reader.readLine()) != null) {
+						final String[] record = GTFSCsv.split(line);
+						final String serviceId = GTFSCsv.get(header, record, SERVICE_ID);
+						final Integer startDate = parseDate(GTFSCsv.get(header, record, START_DATE));
+						final Integer endDate = parseDate(GTFSCsv.get(header, record, END_DATE));
+						if (serviceId == null || startDate == null || endDate == null) {
+							continue;
+						}
+						final TreeMap<Integer, Boolean> activeDates = serviceDates.computeIfAbsent(serviceId.trim(), k -> new TreeMap<>());
+						for (LocalDate day = toLocalDate(startDate); toDate(day) <= endDate; day = day.plusDays(1L)) {
+							final String dayOfWeek = GTFSCsv.get(header, record, DAYS_OF_WEEK[day.getDayOfWeek().getValue() - 1]);
+							if (dayOfWeek != null && GTFS_SERVICE_AVAILABLE.equals(dayOfWeek.trim())) {
+								activeDates.putIfAbsent(toDate(day), true);
+							}
+						}
+					}
+				}
+			}
+			final ZipEntry calendarDates = zipFile.getEntry(CALENDAR_DATES_TXT);
+			if (calendarDates != null) {
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(calendarDates), StandardCharsets.UTF_8))) {
+					final Map<String, Integer> header = GTFSCsv.readHeader(reader);
+					String line;
+					while ((line = reader.readLine()) != null) {
+						final String[] record = GTFSCsv.split(line);
+						final String serviceId = GTFSCsv.get(header, record, SERVICE_ID);
+						final Integer date = parseDate(GTFSCsv.get(header, record, DATE));
+						final String exceptionType = GTFSCsv.get(header, record, EXCEPTION_TYPE);
+						if (serviceId == null || date == null || exceptionType == null) {
+							continue;
+						}
+						final TreeMap<Integer, Boolean> activeDates = serviceDates.computeIfAbsent(serviceId.trim(), k -> new TreeMap<>());
+						if (GTFS_EXCEPTION_TYPE_REMOVED.equals(exceptionType.trim())) {
+							activeDates.put(date, false);
+						} else if (GTFS_EXCEPTION_TYPE_ADDED.equals(exceptionType.trim())) {
+							activeDates.putIfAbsent(date, true);
+						}
+					}
+				}
+			}
+		} catch (IOException ioe) {
+			throw new MTLog.Fatal(ioe, "Error while reading service periods from '%s'!", gtfsZip);
+		}
+		final List<ServicePeriod> periods = new ArrayList<>();
+		for (Map.Entry<String, TreeMap<Integer, Boolean>> entry : serviceDates.entrySet()) {
+			addPeriods(periods, feed, entry.getKey(), entry.getValue());
+		}
+		return periods;
+	}
+
+	@Nullable
+	private static Integer parseDate(@Nullable String date) {
+		if (date == null || date.trim().isEmpty()) {
+			return null;
+		}
+		return Integer.parseInt(date.trim());
+	}
+
+	@NotNull
+	private static LocalDate toLocalDate(int date) {
+		return LocalDate.of(date / 10_000, (date / 100) % 100, date % 100);
+	}
+
+	private static int addDays(int date, long days) {
+		return toDate(toLocalDate(date).plusDays(days));
+	}
+
+	private static int toDate(@NotNull LocalDate localDate) {
+		return localDate.getYear() * 10_000 + localDate.getMonthValue() * 100 + localDate.getDayOfMonth();
+	}
+}
@@ -0,0 +1,206 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.mtransit.parser.MTLog;
+import org.mtransit.parser.ca_st_catharines_transit_bus.ServicePeriodIntervalTree.ServicePeriod;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Re-runnable check of {@link FeedScheduleMerge} with small fixture GTFS zips (current & next)
+ * with overlapping calendar.txt ranges, weekday flags & calendar_dates.txt additions / removals,
+ * and a weekday-only next service starting while the current Saturday service still runs.
+ * <p>
+ * Usage: {@code FeedScheduleMergeCheck [work dir]} (fails with {@link MTLog.Fatal} on the 1st unexpected result)
+ */
+@SuppressWarnings("WeakerAccess")
+public final class FeedScheduleMergeCheck {
+
+	public static void main(@NotNull String[] args) throws IOException {
+		final File workDir = args.length > 0 ? new File(args[0]) : Files.createTempDirectory("feed_schedule_merge").toFile();
+		Files.createDirectories(workDir.toPath());
+		checkOverlappingFeeds(workDir);
+		checkWeekdayOnlyNextService(workDir);
+		MTLog.log("Feed schedule merge check: OK (%s).", workDir);
+	}
+
+	private static void checkOverlappingFeeds(@NotNull File workDir) throws IOException {
+		final List<ServicePeriod> currentPeriods = readPeriods(FeedScheduleMerge.FEED_CURRENT,
+				writeZip(new File(workDir, "current.zip"), CURRENT_CALENDAR, CURRENT_CALENDAR_DATES));
+		final List<ServicePeriod> nextPeriods = readPeriods(FeedScheduleMerge.FEED_NEXT,
+				writeZip(new File(workDir, "next.zip"), NEXT_CALENDAR, NEXT_CALENDAR_DATES));
+		check("current periods", Arrays.asList(
+				"ServicePeriod{current:'ADD',20260110-20260110}", // calendar_dates.txt only
+				"ServicePeriod{current:'SA',20260103-20260103}", // 1 run per Saturday
+				"ServicePeriod{current:'SA',20260110-20260110}",
+				"ServicePeriod{current:'SA',20260117-20260117}",
+				"ServicePeriod{current:'SA',20260124-20260124}",
+				"ServicePeriod{current:'SA',20260131-20260131}",
+				"ServicePeriod{current:'WK',20260105-20260109}", // 1 run per week, NOT the week-end before / after
+				"ServicePeriod{current:'WK',20260112-20260116}",
+				"ServicePeriod{current:'WK',20260120-20260123}", // 20260119 removed
+				"ServicePeriod{current:'WK',20260126-20260129}" // 20260130 removed; NONE: no weekday
+		), toStrings(currentPeriods));
+		check("next periods", Arrays.asList(
+				"ServicePeriod{next:'SA2',20260131-20260131}",
+				"ServicePeriod{next:'SA2',20260207-20260207}",
+				"ServicePeriod{next:'SA2',20260214-20260214}",
+				"ServicePeriod{next:'SA2',20260221-20260221}",
+				"ServicePeriod{next:'SA2',20260228-20260228}",
+				"ServicePeriod{next:'WK2',20260127-20260130}", // 20260126 removed
+				"ServicePeriod{next:'WK2',20260202-20260206}",
+				"ServicePeriod{next:'WK2',20260209-20260213}",
+				"ServicePeriod{next:'WK2',20260216-20260220}",
+				"ServicePeriod{next:'WK2',20260223-20260227}"
+		), toStrings(nextPeriods));
+		final FeedScheduleMerge merge = newMerge(currentPeriods, nextPeriods);
+		check("cut-over date", 20260127, merge.getCutOverDate());
+		final TreeMap<Integer, String> selection = merge.getFeedSelection();
+		check("first day", 20260103, selection.firstKey());
+		check("last day", 20260228, selection.lastKey());
+		check("days", 48, selection.size()); // Sundays & 20260119 without service
+		check("20260102", null, selection.get(20260102));
+		check("20260103", FeedScheduleMerge.FEED_CURRENT, selection.get(20260103));
+		check("20260104", null, selection.get(20260104)); // Sunday
+		check("20260119", null, selection.get(20260119)); // removed
+		check("20260126", FeedScheduleMerge.FEED_CURRENT, selection.get(20260126));
+		check("20260127", FeedScheduleMerge.FEED_NEXT, selection.get(20260127)); // current WK still running
+		check("20260131", FeedScheduleMerge.FEED_NEXT, selection.get(20260131)); // current SA still running
+		check("20260228", FeedScheduleMerge.FEED_NEXT, selection.get(20260228));
+		check("trimmed periods", Arrays.asList(
+				"ServicePeriod{current:'SA',20260103-20260103}",
+				"ServicePeriod{current:'WK',20260105-20260109}",
+				"ServicePeriod{current:'ADD',20260110-20260110}",
+				"ServicePeriod{current:'SA',20260110-20260110}",
+				"ServicePeriod{current:'WK',20260112-20260116}",
+				"ServicePeriod{current:'SA',20260117-20260117}",
+				"ServicePeriod{current:'WK',20260120-20260123}",
+				"ServicePeriod{current:'SA',20260124-20260124}",
+				"ServicePeriod{current:'WK',20260126-20260126}",
+				"ServicePeriod{next:'WK2',20260127-20260130}",
+				"ServicePeriod{next:'SA2',20260131-20260131}",
+				"ServicePeriod{next:'WK2',20260202-20260206}",
+				"ServicePeriod{next:'SA2',20260207-20260207}",
+				"ServicePeriod{next:'WK2',20260209-20260213}",
+				"ServicePeriod{next:'SA2',20260214-20260214}",
+				"ServicePeriod{next:'WK2',20260216-20260220}",
+				"ServicePeriod{next:'SA2',20260221-20260221}",
+				"ServicePeriod{next:'WK2',20260223-20260227}",
+				"ServicePeriod{next:'SA2',20260228-20260228}"
+		), toStrings(merge.getTrimmedPeriods()));
+	}
+
+	// next weekday service does NOT cover the current Saturday service before the next Saturday service starts
+	private static void checkWeekdayOnlyNextService(@NotNull File workDir) throws IOException {
+		final FeedScheduleMerge merge = newMerge(
+				readPeriods(FeedScheduleMerge.FEED_CURRENT, writeZip(new File(workDir, "current_saturday.zip"),
+						new String[]{CALENDAR_HEADER, "SA,0,0,0,0,0,1,0,20260103,20260228"}, new String[]{CALENDAR_DATES_HEADER})),
+				readPeriods(FeedScheduleMerge.FEED_NEXT, writeZip(new File(workDir, "next_weekday.zip"),
+						new String[]{CALENDAR_HEADER, "WK2,1,1,1,1,1,0,0,20260126,20260227", "SA2,0,0,0,0,0,1,0,20260207,20260228"},
+						new String[]{CALENDAR_DATES_HEADER})));
+		check("weekday-only cut-over date", 20260126, merge.getCutOverDate());
+		final TreeMap<Integer, String> selection = merge.getFeedSelection();
+		check("weekday-only 20260124", FeedScheduleMerge.FEED_CURRENT, selection.get(20260124));
+		check("weekday-only 20260126", FeedScheduleMerge.FEED_NEXT, selection.get(20260126));
+		check("weekday-only 20260131", FeedScheduleMerge.FEED_CURRENT, selection.get(20260131)); // NO next Saturday service yet
+		check("weekday-only 20260201", null, selection.get(20260201)); // Sunday
+		check("weekday-only 20260207", FeedScheduleMerge.FEED_NEXT, selection.get(20260207));
+		check("weekday-only trimmed current periods", Arrays.asList(
+				"ServicePeriod{current:'SA',20260103-20260103}",
+				"ServicePeriod{current:'SA',20260110-20260110}",
+				"ServicePeriod{current:'SA',20260117-20260117}",
+				"ServicePeriod{current:'SA',20260124-20260124}",
+				"ServicePeriod{current:'SA',20260131-20260131}"
+		), toStrings(filter(merge.getTrimmedPeriods(), FeedScheduleMerge.FEED_CURRENT)));
+		check("weekday-only trimmed next periods", 9, filter(merge.getTrimmedPeriods(), FeedScheduleMerge.FEED_NEXT).size());
+	}
+
+	@NotNull
+	private static List<ServicePeriod> readPeriods(@NotNull String feed, @NotNull File zipFile) {
+		return FeedScheduleMerge.readPeriods(feed, zipFile,
+				FeedScheduleMerge.FEED_NEXT.equals(feed) ? GTFSRawResources.NEXT_FILE_BASE : GTFSRawResources.CURRENT_FILE_BASE);
+	}
+
+	@NotNull
+	private static FeedScheduleMerge newMerge(@NotNull List<ServicePeriod> currentPeriods, @NotNull List<ServicePeriod> nextPeriods) {
+		final List<ServicePeriod> periods = new ArrayList<>(currentPeriods);
+		periods.addAll(nextPeriods);
+		return new FeedScheduleMerge(periods);
+	}
+
+	@NotNull
+	private static List<ServicePeriod> filter(@NotNull List<ServicePeriod> periods, @NotNull String feed) {
+		final List<ServicePeriod> filtered = new ArrayList<>();
+		for (ServicePeriod period : periods) {
+			if (period.getFeed().equals(feed)) {
+				filtered.add(period);
+			}
+		}
+		return filtered;
+	}
+
+	private static final String CALENDAR_HEADER = "service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date";
+	private static final String CALENDAR_DATES_HEADER = "service_id,date,exception_type";
+
+	private static final String[] CURRENT_CALENDAR = new String[]{
+			CALENDAR_HEADER,
+			"WK,1,1,1,1,1,0,0,20260103,20260201", // Saturday to Sunday
+			"SA,0,0,0,0,0,1,0,20260103,20260131",
+			"NONE,0,0,0,0,0,0,0,20260101,20260331",
+	};
+	private static final String[] CURRENT_CALENDAR_DATES = new String[]{
+			CALENDAR_DATES_HEADER,
+			"WK,20260119,2",
+			"WK,20260130,2",
+			"ADD,20260110,1",
+	};
+	private static final String[] NEXT_CALENDAR = new String[]{
+			CALENDAR_HEADER,
+			"WK2,1,1,1,1,1,0,0,20260126,20260227",
+			"\"SA2\",0,0,0,0,0,1,0,20260131,20260228",
+	};
+	private static final String[] NEXT_CALENDAR_DATES = new String[]{
+			CALENDAR_DATES_HEADER,
+			"WK2,20260126,2",
+	};
+
+	@NotNull
+	private static File writeZip(@NotNull File zipFile, @NotNull String[] calendar, @NotNull String[] calendarDates) throws IOException {
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+			writeEntry(zip, "calendar.txt", calendar);
+			writeEntry(zip, "calendar_dates.txt", calendarDates);
+		}
+		return zipFile;
+	}
+
+	private static void writeEntry(@NotNull ZipOutputStream zip, @NotNull String name, @NotNull String[] lines) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+		zip.closeEntry();
+	}
+
+	@NotNull
+	private static List<String> toStrings(@NotNull List<ServicePeriod> periods) {
+		final List<String> strings = new ArrayList<>();
+		for (ServicePeriod period : periods) {
+			strings.add(period.toString());
+		}
+		return strings;
+	}
+
+	private static void check(@NotNull String what, Object expected, Object actual) {
+		if (!Objects.equals(expected, actual)) {
+			throw new MTLog.Fatal("Unexpected %s: %s instead of %s!", what, actual, expected);
+		}
+	}
+}
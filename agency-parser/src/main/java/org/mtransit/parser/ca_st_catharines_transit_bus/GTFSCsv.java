@@ -0,0 +1,69 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Minimal reader/writer for the original GTFS .txt files (RFC 4180 CSV with header, double quotes).
+final class GTFSCsv {
+
+	private static final char SEPARATOR = ',';
+	private static final char QUOTE = '"';
+	private static final char BOM = '\uFEFF';
+
+	private GTFSCsv() {
+	}
+
+	// column name -> index
+	@NotNull
+	static Map<String, Integer> readHeader(@NotNull BufferedReader reader) throws IOException {
+		final Map<String, Integer> header = new HashMap<>();
+		String line = reader.readLine();
+		if (line == null) {
+			return header;
+		}
+		if (!line.isEmpty() && line.charAt(0) == BOM) {
+			line = line.substring(1);
+		}
+		final String[] columns = split(line);
+		for (int i = 0; i < columns.length; i++) {
+			header.put(columns[i].trim(), i);
+		}
+		return header;
+	}
+
+	@NotNull
+	static String[] split(@NotNull String line) {
+		return GTFSRawResources.split(line, QUOTE);
+	}
+
+	@Nullable
+	static String get(@NotNull Map<String, Integer> header, @NotNull String[] record, @NotNull String column) {
+		final Integer index = header.get(column);
+		if (index == null || index >= record.length) {
+			return null;
+		}
+		return record[index];
+	}
+
+	@NotNull
+	static String join(@NotNull String[] record) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < record.length; i++) {
+			if (i > 0) {
+				sb.append(SEPARATOR);
+			}
+			final String value = record[i] == null ? "" : record[i];
+			if (value.indexOf(SEPARATOR) >= 0 || value.indexOf(QUOTE) >= 0 || value.indexOf('\n') >= 0) {
+				sb.append(QUOTE).append(value.replace("\"", "\"\"")).append(QUOTE);
+			} else {
+				sb.append(value);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,93 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.mtransit.parser.MTLog;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads the generated "res-*/raw" files (current_gtfs_rts_*, current_gtfs_schedule_*):
+// one record per line, comma separated, strings wrapped in single quotes.
+final class GTFSRawResources {
+
+	static final String CURRENT_FILE_BASE = "current_";
+	static final String NEXT_FILE_BASE = "next_";
+
+	static final String RTS_ROUTES = "gtfs_rts_routes";
+	static final String RTS_TRIPS = "gtfs_rts_trips";
+	static final String RTS_STOPS = "gtfs_rts_stops";
+	static final String RTS_TRIP_STOPS = "gtfs_rts_trip_stops";
+	static final String SCHEDULE_SERVICE_DATES = "gtfs_schedule_service_dates";
+
+	// trip_id,headsign_type,'headsign_value',route_id
+	static final int TRIPS_TRIP_ID = 0;
+	static final int TRIPS_ROUTE_ID = 3;
+
+	// trip_id,stop_id,...
+	static final int TRIP_STOPS_TRIP_ID = 0;
+	static final int TRIP_STOPS_STOP_ID = 1;
+
+	private static final char SEPARATOR = ',';
+	private static final char QUOTE = '\'';
+
+	private GTFSRawResources() {
+	}
+
+	@NotNull
+	static File getFile(@NotNull File rawDir, @NotNull String fileBase, @NotNull String name) {
+		return new File(rawDir, fileBase + name);
+	}
+
+	@NotNull
+	static List<String[]> readAll(@NotNull File file) {
+		final List<String[]> records = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				records.add(split(line));
+			}
+		} catch (IOException ioe) {
+			throw new MTLog.Fatal(ioe, "Error while reading '%s'!", file);
+		}
+		return records;
+	}
+
+	@NotNull
+	static String[] split(@NotNull String line) {
+		return split(line, QUOTE);
+	}
+
+	// also used for the original GTFS files (double quotes)
+	@NotNull
+	static String[] split(@NotNull String line, char quote) {
+		final List<String> values = new ArrayList<>();
+		final StringBuilder sb = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			final char c = line.charAt(i);
+			if (c == quote) {
+				if (quoted && i + 1 < line.length() && line.charAt(i + 1) == quote) {
+					sb.append(quote); // escaped
+					i++;
+					continue;
+				}
+				quoted = !quoted;
+			} else if (c == SEPARATOR && !quoted) {
+				values.add(sb.toString());
+				sb.setLength(0);
+			} else {
+				sb.append(c);
+			}
+		}
+		values.add(sb.toString());
+		return values.toArray(new String[0]);
+	}
+}
@@ -0,0 +1,157 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.mtransit.parser.MTLog;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Parses synthetic feeds (see {@link SyntheticFeedGenerator}) at each scale factor with {@link StCatharinesTransitBusAgencyTools}
+ * and records parse time, peak heap, output size & output routes / trips / stops
+ * (fails if the parser did NOT write the "current_gtfs_rts_*" files or wrote fewer routes than replicated).
+ * <p>
+ * Each scale factor runs in its own JVM to avoid warm-up & parser static state skewing the results:
+ * with more than 1 scale factor, a child JVM (same Java, class path & JVM options) is started for each of them.
+ * <p>
+ * Usage: {@code ParserScalingBenchmark <archived GTFS zip> <work dir> <results CSV file> <seed> <scale factor>...}
+ */
+@SuppressWarnings("WeakerAccess")
+public final class ParserScalingBenchmark {
+
+	public static void main(@NotNull String[] args) throws IOException {
+		if (args.length < 5) {
+			throw new MTLog.Fatal("Usage: ParserScalingBenchmark <archived GTFS zip> <work dir> <results CSV file> <seed> <scale factor>...");
+		}
+		final File archivedZip = new File(args[0]);
+		final File workDir = new File(args[1]);
+		final File resultsFile = new File(args[2]);
+		final long seed = Long.parseLong(args[3]);
+		if (args.length == 5) {
+			run(archivedZip, workDir, resultsFile, seed, Integer.parseInt(args[4]));
+			return;
+		}
+		for (int i = 4; i < args.length; i++) {
+			runInChildJVM(args[0], args[1], args[2], args[3], args[i]);
+		}
+	}
+
+	private static final String RESULTS_HEADER = "scale_factor,input_bytes,replicated_routes,named_code_stops,converted_named_code_stops,"
+			+ "parse_ms,peak_heap_bytes,output_bytes,output_routes,output_trips,output_stops";
+
+	private static void runInChildJVM(@NotNull String... args) throws IOException {
+		final List<String> command = new ArrayList<>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath());
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ParserScalingBenchmark.class.getName());
+		command.addAll(Arrays.asList(args));
+		final int exitCode;
+		try {
+			exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new MTLog.Fatal(ie, "Interrupted while running scale factor %s!", args[args.length - 1]);
+		}
+		if (exitCode != 0) {
+			throw new MTLog.Fatal("Scale factor %s failed (exit code: %d)!", args[args.length - 1], exitCode);
+		}
+	}
+
+	private static void run(@NotNull File archivedZip, @NotNull File workDir, @NotNull File resultsFile, long seed, int scaleFactor) throws IOException {
+		final File scaleDir = new File(workDir, "x" + scaleFactor);
+		final File outputDir = new File(scaleDir, "output");
+		Files.createDirectories(outputDir.toPath());
+		final File inputZip = new File(scaleDir, "gtfs.zip");
+		final SyntheticFeedGenerator generator = new SyntheticFeedGenerator(scaleFactor, seed);
+		generator.generate(archivedZip, inputZip);
+		System.gc();
+		resetPeakUsage();
+		final long startNs = System.nanoTime();
+		// same arguments as the parser build: <input GTFS> <output root dir> <file base>
+		new StCatharinesTransitBusAgencyTools().start(new String[]{
+				inputZip.getAbsolutePath(), outputDir.getAbsolutePath(), GTFSRawResources.CURRENT_FILE_BASE
+		});
+		final long parseMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+		final long peakHeapBytes = getPeakHeapUsage();
+		final long outputBytes = getSize(outputDir);
+		final int outputRoutes = countLines(findOutputFile(outputDir, GTFSRawResources.RTS_ROUTES));
+		final int outputTrips = countLines(findOutputFile(outputDir, GTFSRawResources.RTS_TRIPS));
+		final int outputStops = countLines(findOutputFile(outputDir, GTFSRawResources.RTS_STOPS));
+		if (outputRoutes < generator.getReplicatedRoutes()) {
+			throw new MTLog.Fatal("Scale x%d: %d output route(s) instead of at least %d replicated!", scaleFactor, outputRoutes, generator.getReplicatedRoutes());
+		}
+		final String result = scaleFactor + "," + inputZip.length() + "," + generator.getReplicatedRoutes()
+				+ "," + generator.getNamedCodeStops() + "," + generator.getConvertedNamedCodeStops()
+				+ "," + parseMs + "," + peakHeapBytes + "," + outputBytes
+				+ "," + outputRoutes + "," + outputTrips + "," + outputStops;
+		final boolean newFile = !resultsFile.exists();
+		try (BufferedWriter writer = Files.newBufferedWriter(resultsFile.toPath(), StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			if (newFile) {
+				writer.write(RESULTS_HEADER);
+				writer.newLine();
+			}
+			writer.write(result);
+			writer.newLine();
+		}
+		MTLog.log("Scale x%d: parsed in %d ms, peak heap %d MB, output %d KB.", scaleFactor, parseMs, peakHeapBytes / 1024L / 1024L, outputBytes / 1024L);
+	}
+
+	private static void resetPeakUsage() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	// sum of each heap pool peak (upper bound of the actual peak)
+	private static long getPeakHeapUsage() {
+		long peak = 0L;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	// output directories layout (res-current/raw...) owned by the parser
+	@NotNull
+	private static File findOutputFile(@NotNull File outputDir, @NotNull String fileName) throws IOException {
+		final String name = GTFSRawResources.CURRENT_FILE_BASE + fileName;
+		try (Stream<Path> paths = Files.walk(outputDir.toPath())) {
+			return paths.filter(path -> path.getFileName().toString().equals(name))
+					.findFirst()
+					.orElseThrow(() -> new MTLog.Fatal("No parser output file '%s' in '%s'!", name, outputDir))
+					.toFile();
+		}
+	}
+
+	private static int countLines(@NotNull File file) throws IOException {
+		try (Stream<String> lines = Files.lines(file.toPath(), StandardCharsets.UTF_8)) {
+			return (int) lines.filter(line -> !line.isEmpty()).count();
+		}
+	}
+
+	private static long getSize(@NotNull File dir) throws IOException {
+		try (Stream<Path> paths = Files.walk(dir.toPath())) {
+			return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.mtransit.parser.MTLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// SHA-256 digests as lower-case hex strings (archived snapshots, chunks...).
+final class SHA256 {
+
+	private static final String ALGORITHM = "SHA-256";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private SHA256() {
+	}
+
+	@NotNull
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new MTLog.Fatal(e, "Error while creating %s digest!", ALGORITHM);
+		}
+	}
+
+	@NotNull
+	static String hash(@NotNull byte[] bytes) {
+		return toHex(newDigest().digest(bytes));
+	}
+
+	@NotNull
+	static String hash(@NotNull File file) throws IOException {
+		final MessageDigest md = newDigest();
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				md.update(buffer, 0, read);
+			}
+		}
+		return toHex(md.digest());
+	}
+
+	@NotNull
+	static String toHex(@NotNull byte[] digest) {
+		final char[] hex = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0F];
+			hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0F];
+		}
+		return new String(hex);
+	}
+}
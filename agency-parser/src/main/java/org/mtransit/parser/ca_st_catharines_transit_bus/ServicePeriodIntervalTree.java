@@ -0,0 +1,142 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Static interval tree (implicit balanced BST over periods sorted by start date, augmented with the max end date).
+ * <p>
+ * Build: O(n log n), stabbing / overlap query: O(log n + k).
+ */
+@SuppressWarnings("WeakerAccess")
+public final class ServicePeriodIntervalTree {
+
+	public static final class ServicePeriod {
+
+		@NotNull
+		private final String feed;
+		@NotNull
+		private final String serviceId;
+		private final int startDate; // YYYYMMDD, inclusive
+		private final int endDate; // YYYYMMDD, inclusive
+
+		public ServicePeriod(@NotNull String feed, @NotNull String serviceId, int startDate, int endDate) {
+			this.feed = feed;
+			this.serviceId = serviceId;
+			this.startDate = startDate;
+			this.endDate = endDate;
+		}
+
+		@NotNull
+		public String getFeed() {
+			return feed;
+		}
+
+		@NotNull
+		public String getServiceId() {
+			return serviceId;
+		}
+
+		public int getStartDate() {
+			return startDate;
+		}
+
+		public int getEndDate() {
+			return endDate;
+		}
+
+		public boolean contains(int date) {
+			return this.startDate <= date && date <= this.endDate;
+		}
+
+		@NotNull
+		@Override
+		public String toString() {
+			return ServicePeriod.class.getSimpleName() + "{" + feed + ":'" + serviceId + "'," + startDate + "-" + endDate + "}";
+		}
+	}
+
+	private static final Comparator<ServicePeriod> START_DATE_COMPARATOR = Comparator
+			.comparingInt(ServicePeriod::getStartDate)
+			.thenComparingInt(ServicePeriod::getEndDate)
+			.thenComparing(ServicePeriod::getFeed)
+			.thenComparing(ServicePeriod::getServiceId);
+
+	@NotNull
+	private final ServicePeriod[] periods; // sorted by start date
+	@NotNull
+	private final int[] maxEndDates; // max end date of the sub-tree rooted at the same index
+
+	public ServicePeriodIntervalTree(@NotNull List<ServicePeriod> periods) {
+		this.periods = periods.toArray(new ServicePeriod[0]);
+		Arrays.sort(this.periods, START_DATE_COMPARATOR);
+		this.maxEndDates = new int[this.periods.length];
+		buildMaxEndDates(0, this.periods.length - 1);
+	}
+
+	private int buildMaxEndDates(int lo, int hi) {
+		if (lo > hi) {
+			return Integer.MIN_VALUE;
+		}
+		final int mid = (lo + hi) >>> 1;
+		final int max = Math.max(this.periods[mid].endDate, Math.max(buildMaxEndDates(lo, mid - 1), buildMaxEndDates(mid + 1, hi)));
+		this.maxEndDates[mid] = max;
+		return max;
+	}
+
+	public int size() {
+		return this.periods.length;
+	}
+
+	public boolean isEmpty() {
+		return this.periods.length == 0;
+	}
+
+	public int getMinStartDate() {
+		return this.periods.length == 0 ? Integer.MAX_VALUE : this.periods[0].startDate;
+	}
+
+	public int getMaxEndDate() {
+		return this.periods.length == 0 ? Integer.MIN_VALUE : this.maxEndDates[(this.periods.length - 1) >>> 1];
+	}
+
+	/**
+	 * @return periods containing the date (sorted by start date)
+	 */
+	@NotNull
+	public List<ServicePeriod> findAt(int date) {
+		return findOverlapping(date, date);
+	}
+
+	/**
+	 * @return periods overlapping [fromDate, toDate] (sorted by start date)
+	 */
+	@NotNull
+	public List<ServicePeriod> findOverlapping(int fromDate, int toDate) {
+		final List<ServicePeriod> result = new ArrayList<>();
+		findOverlapping(0, this.periods.length - 1, fromDate, toDate, result);
+		return result;
+	}
+
+	private void findOverlapping(int lo, int hi, int fromDate, int toDate, @NotNull List<ServicePeriod> result) {
+		if (lo > hi) {
+			return;
+		}
+		final int mid = (lo + hi) >>> 1;
+		if (this.maxEndDates[mid] < fromDate) {
+			return; // nothing in this sub-tree ends after the range start
+		}
+		findOverlapping(lo, mid - 1, fromDate, toDate, result);
+		if (this.periods[mid].startDate > toDate) {
+			return; // right sub-tree starts after the range end too
+		}
+		if (this.periods[mid].endDate >= fromDate) {
+			result.add(this.periods[mid]);
+		}
+		findOverlapping(mid + 1, hi, fromDate, toDate, result);
+	}
+}
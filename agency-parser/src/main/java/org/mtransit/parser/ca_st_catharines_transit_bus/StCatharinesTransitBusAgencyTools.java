@@ -46,44 +46,49 @@ public class StCatharinesTransitBusAgencyTools extends DefaultAgencyTools {
 		return "St Catharines Transit";
 	}
 
-	private static final String ST_CATHARINES_TRANSIT_COMMISSION = "St. Catharines Transit Commission";
+	static final String ST_CATHARINES_TRANSIT_COMMISSION = "St. Catharines Transit Commission";
 
 	@Override
 	public boolean excludeAgency(@NotNull GAgency gAgency) {
 		//noinspection deprecation
-		final String agencyId = gAgency.getAgencyId();
-		if (!agencyId.contains(ST_CATHARINES_TRANSIT_COMMISSION)
-				&& !agencyId.contains("AllNRT_")
-				&& !agencyId.equals("1")) {
+		if (isExcludedAgencyId(gAgency.getAgencyId())) {
 			return EXCLUDE;
 		}
 		return super.excludeAgency(gAgency);
 	}
 
+	// also used by SyntheticFeedGenerator
+	static boolean isExcludedAgencyId(@NotNull String agencyId) {
+		return !agencyId.contains(ST_CATHARINES_TRANSIT_COMMISSION)
+				&& !agencyId.contains("AllNRT_")
+				&& !agencyId.equals("1");
+	}
+
 	@Override
 	public boolean excludeRoute(@NotNull GRoute gRoute) {
 		//noinspection deprecation
-		final String agencyId = gRoute.getAgencyIdOrDefault();
-		if (!agencyId.contains(ST_CATHARINES_TRANSIT_COMMISSION)
-				&& !agencyId.contains("AllNRT_")
-				&& !agencyId.equals("1")) {
+		if (isExcludedRoute(gRoute.getAgencyIdOrDefault(), gRoute.getRouteShortName(), gRoute.getRouteLongNameOrDefault())) {
 			return EXCLUDE;
 		}
+		return super.excludeRoute(gRoute);
+	}
+
+	// also used by SyntheticFeedGenerator
+	static boolean isExcludedRoute(@NotNull String agencyId, @NotNull String rsnS, @NotNull String routeLongName) {
+		if (isExcludedAgencyId(agencyId)) {
+			return true;
+		}
 		if (agencyId.contains("AllNRT_")
 				|| agencyId.equals("1")) {
-			final String rsnS = gRoute.getRouteShortName();
 			if (!CharUtils.isDigitsOnly(rsnS)) {
-				return EXCLUDE;
+				return true;
 			}
 			final int rsn = Integer.parseInt(rsnS);
 			if (rsn < 300 || rsn > 499) {
-				return EXCLUDE;
+				return true;
 			}
 		}
-		if (gRoute.getRouteLongNameOrDefault().startsWith("IMT - ")) {
-			return EXCLUDE; // Niagara Region Transit
-		}
-		return super.excludeRoute(gRoute);
+		return routeLongName.startsWith("IMT - "); // Niagara Region Transit
 	}
 
 	@Override
@@ -125,7 +130,7 @@ public class StCatharinesTransitBusAgencyTools extends DefaultAgencyTools {
 
 	private static final String AGENCY_COLOR_GREEN = "008E1A"; // GREEN (from web site CSS)
 
-	private static final String AGENCY_COLOR = AGENCY_COLOR_GREEN;
+	static final String AGENCY_COLOR = AGENCY_COLOR_GREEN;
 
 	@Override
 	public boolean defaultAgencyColorEnabled() {
@@ -211,7 +216,7 @@ public class StCatharinesTransitBusAgencyTools extends DefaultAgencyTools {
 		}
 	}
 
-	private static final Pattern STARTS_WITH_STC_A00_ = Pattern.compile( //
+	static final Pattern STARTS_WITH_STC_A00_ = Pattern.compile( //
 			"((^)((allnrt|stc)_[a-z]{1,3}\\d{2,4}(_)?([A-Z]{3}(stop))?(stop)?))", //
 			Pattern.CASE_INSENSITIVE);
 
@@ -396,14 +401,15 @@ public class StCatharinesTransitBusAgencyTools extends DefaultAgencyTools {
 	private static final String WLND = "Wlnd";
 	private static final String WMBL = "Wmbl";
 
-	private static final String CD = "CD";
-	private static final String CRL = "CRL";
-	private static final String GLI = "GLI";
-	private static final String LKV = "LKV";
-	private static final String LLI = "LLI";
-	private static final String NOTL = "NOTL";
-	private static final String PGL = "PGL";
-	private static final String SCWE = "SCWE";
+	// stop code families with digits (see getStopId())
+	static final String CD = "CD";
+	static final String CRL = "CRL";
+	static final String GLI = "GLI";
+	static final String LKV = "LKV";
+	static final String LLI = "LLI";
+	static final String NOTL = "NOTL";
+	static final String PGL = "PGL";
+	static final String SCWE = "SCWE";
 
 	private static final String WEL = "WEL";
 	private static final String SWM = "SWM";
@@ -0,0 +1,323 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.mtransit.parser.MTLog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Compact (CSR) stop -> trips -> routes adjacency built from the generated trip stops & trips files.
+ * <p>
+ * All lists are stored in flat primitive arrays with offsets so that "routes at stop" and
+ * "shared stops between 2 routes" are answered in time proportional to the answer size (+ 1 binary search).
+ * <p>
+ * Manual tool, run on already generated files: the parser does NOT emit this index
+ * (nothing writes it to "res-*&#47;raw") and the app has no reader for it (yet).
+ * <p>
+ * Usage: {@code StopRouteIndex <raw dir> <file base> <output file>}
+ */
+@SuppressWarnings("WeakerAccess")
+public final class StopRouteIndex {
+
+	public static void main(@NotNull String[] args) {
+		if (args.length < 3) {
+			throw new MTLog.Fatal("Usage: StopRouteIndex <raw dir> <file base> <output file>");
+		}
+		final StopRouteIndex index = build(new File(args[0]), args[1]);
+		index.writeTo(new File(args[2]));
+		MTLog.log("Stop route index: %d stops, %d routes, %d route pairs.", index.stopIds.length, index.routeIds.length, index.pairKeys.length);
+	}
+
+	private static final int MAGIC = 0x4D545352; // MTSR
+	private static final int VERSION = 1;
+
+	private static final int[] NO_INT = new int[0];
+	private static final long[] NO_LONG = new long[0];
+
+	// stop ID (sorted) -> trip IDs (sorted)
+	@NotNull
+	private final int[] stopIds;
+	@NotNull
+	private final int[] stopTripOffsets;
+	@NotNull
+	private final long[] stopTripIds;
+	// stop ID (same order) -> route IDs (sorted)
+	@NotNull
+	private final int[] stopRouteOffsets;
+	@NotNull
+	private final long[] stopRouteIds;
+	// route ID (sorted) -> stop IDs (sorted)
+	@NotNull
+	private final long[] routeIds;
+	@NotNull
+	private final int[] routeStopOffsets;
+	@NotNull
+	private final int[] routeStopIds;
+	// route index pair key (sorted) -> shared stop IDs (sorted)
+	@NotNull
+	private final long[] pairKeys;
+	@NotNull
+	private final int[] pairStopOffsets;
+	@NotNull
+	private final int[] pairStopIds;
+
+	private StopRouteIndex(@NotNull int[] stopIds,
+						   @NotNull int[] stopTripOffsets,
+						   @NotNull long[] stopTripIds,
+						   @NotNull int[] stopRouteOffsets,
+						   @NotNull long[] stopRouteIds,
+						   @NotNull long[] routeIds,
+						   @NotNull int[] routeStopOffsets,
+						   @NotNull int[] routeStopIds,
+						   @NotNull long[] pairKeys,
+						   @NotNull int[] pairStopOffsets,
+						   @NotNull int[] pairStopIds) {
+		this.stopIds = stopIds;
+		this.stopTripOffsets = stopTripOffsets;
+		this.stopTripIds = stopTripIds;
+		this.stopRouteOffsets = stopRouteOffsets;
+		this.stopRouteIds = stopRouteIds;
+		this.routeIds = routeIds;
+		this.routeStopOffsets = routeStopOffsets;
+		this.routeStopIds = routeStopIds;
+		this.pairKeys = pairKeys;
+		this.pairStopOffsets = pairStopOffsets;
+		this.pairStopIds = pairStopIds;
+	}
+
+	@NotNull
+	public static StopRouteIndex build(@NotNull File rawDir, @NotNull String fileBase) {
+		final Map<Long, Long> tripToRoute = new HashMap<>();
+		for (String[] trip : GTFSRawResources.readAll(GTFSRawResources.getFile(rawDir, fileBase, GTFSRawResources.RTS_TRIPS))) {
+			tripToRoute.put(Long.parseLong(trip[GTFSRawResources.TRIPS_TRIP_ID]), Long.parseLong(trip[GTFSRawResources.TRIPS_ROUTE_ID]));
+		}
+		final TreeMap<Integer, TreeSet<Long>> stopTrips = new TreeMap<>();
+		final TreeMap<Integer, TreeSet<Long>> stopRoutes = new TreeMap<>();
+		final TreeMap<Long, TreeSet<Integer>> routeStops = new TreeMap<>();
+		for (String[] tripStop : GTFSRawResources.readAll(GTFSRawResources.getFile(rawDir, fileBase, GTFSRawResources.RTS_TRIP_STOPS))) {
+			final long tripId = Long.parseLong(tripStop[GTFSRawResources.TRIP_STOPS_TRIP_ID]);
+			final int stopId = Integer.parseInt(tripStop[GTFSRawResources.TRIP_STOPS_STOP_ID]);
+			final Long routeId = tripToRoute.get(tripId);
+			if (routeId == null) {
+				throw new MTLog.Fatal("Unexpected trip stop '%s' for unknown trip!", Arrays.toString(tripStop));
+			}
+			stopTrips.computeIfAbsent(stopId, k -> new TreeSet<>()).add(tripId);
+			stopRoutes.computeIfAbsent(stopId, k -> new TreeSet<>()).add(routeId);
+			routeStops.computeIfAbsent(routeId, k -> new TreeSet<>()).add(stopId);
+		}
+		final int stopCount = stopTrips.size();
+		final int[] stopIds = new int[stopCount];
+		final int[] stopTripOffsets = new int[stopCount + 1];
+		final int[] stopRouteOffsets = new int[stopCount + 1];
+		int s = 0;
+		for (Map.Entry<Integer, TreeSet<Long>> entry : stopTrips.entrySet()) {
+			stopIds[s] = entry.getKey();
+			stopTripOffsets[s + 1] = stopTripOffsets[s] + entry.getValue().size();
+			stopRouteOffsets[s + 1] = stopRouteOffsets[s] + stopRoutes.get(entry.getKey()).size();
+			s++;
+		}
+		final long[] stopTripIds = new long[stopTripOffsets[stopCount]];
+		final long[] stopRouteIds = new long[stopRouteOffsets[stopCount]];
+		s = 0;
+		for (Map.Entry<Integer, TreeSet<Long>> entry : stopTrips.entrySet()) {
+			copy(entry.getValue(), stopTripIds, stopTripOffsets[s]);
+			copy(stopRoutes.get(entry.getKey()), stopRouteIds, stopRouteOffsets[s]);
+			s++;
+		}
+		final int routeCount = routeStops.size();
+		final long[] routeIds = new long[routeCount];
+		final int[] routeStopOffsets = new int[routeCount + 1];
+		int r = 0;
+		for (Map.Entry<Long, TreeSet<Integer>> entry : routeStops.entrySet()) {
+			routeIds[r] = entry.getKey();
+			routeStopOffsets[r + 1] = routeStopOffsets[r] + entry.getValue().size();
+			r++;
+		}
+		final int[] routeStopIds = new int[routeStopOffsets[routeCount]];
+		int j = 0;
+		for (TreeSet<Integer> stops : routeStops.values()) {
+			for (Integer stopId : stops) {
+				routeStopIds[j++] = stopId;
+			}
+		}
+		// shared stops: each stop contributes to every pair of routes serving it (stops sorted => lists sorted)
+		final TreeMap<Long, List<Integer>> pairStops = new TreeMap<>();
+		for (s = 0; s < stopCount; s++) {
+			for (int a = stopRouteOffsets[s]; a < stopRouteOffsets[s + 1]; a++) {
+				for (int b = a + 1; b < stopRouteOffsets[s + 1]; b++) {
+					final long key = pairKey(Arrays.binarySearch(routeIds, stopRouteIds[a]), Arrays.binarySearch(routeIds, stopRouteIds[b]), routeCount);
+					pairStops.computeIfAbsent(key, k -> new ArrayList<>()).add(stopIds[s]);
+				}
+			}
+		}
+		final long[] pairKeys = new long[pairStops.size()];
+		final int[] pairStopOffsets = new int[pairKeys.length + 1];
+		int p = 0;
+		for (Map.Entry<Long, List<Integer>> entry : pairStops.entrySet()) {
+			pairKeys[p] = entry.getKey();
+			pairStopOffsets[p + 1] = pairStopOffsets[p] + entry.getValue().size();
+			p++;
+		}
+		final int[] pairStopIds = new int[pairStopOffsets[pairKeys.length]];
+		int i = 0;
+		for (List<Integer> stops : pairStops.values()) {
+			for (Integer stopId : stops) {
+				pairStopIds[i++] = stopId;
+			}
+		}
+		return new StopRouteIndex(stopIds, stopTripOffsets, stopTripIds, stopRouteOffsets, stopRouteIds,
+				routeIds, routeStopOffsets, routeStopIds, pairKeys, pairStopOffsets, pairStopIds);
+	}
+
+	private static void copy(@NotNull TreeSet<Long> values, @NotNull long[] to, int offset) {
+		for (Long value : values) {
+			to[offset++] = value;
+		}
+	}
+
+	private static long pairKey(int routeIdx1, int routeIdx2, int routeCount) {
+		final int min = Math.min(routeIdx1, routeIdx2);
+		final int max = Math.max(routeIdx1, routeIdx2);
+		return (long) min * routeCount + max;
+	}
+
+	@NotNull
+	public long[] getTripIds(int stopId) {
+		final int s = Arrays.binarySearch(this.stopIds, stopId);
+		if (s < 0) {
+			return NO_LONG;
+		}
+		return Arrays.copyOfRange(this.stopTripIds, this.stopTripOffsets[s], this.stopTripOffsets[s + 1]);
+	}
+
+	@NotNull
+	public long[] getRouteIds(int stopId) {
+		final int s = Arrays.binarySearch(this.stopIds, stopId);
+		if (s < 0) {
+			return NO_LONG;
+		}
+		return Arrays.copyOfRange(this.stopRouteIds, this.stopRouteOffsets[s], this.stopRouteOffsets[s + 1]);
+	}
+
+	@NotNull
+	public int[] getStopIds(long routeId) {
+		final int r = Arrays.binarySearch(this.routeIds, routeId);
+		if (r < 0) {
+			return NO_INT;
+		}
+		return Arrays.copyOfRange(this.routeStopIds, this.routeStopOffsets[r], this.routeStopOffsets[r + 1]);
+	}
+
+	@NotNull
+	public int[] getSharedStopIds(long routeId1, long routeId2) {
+		if (routeId1 == routeId2) {
+			return getStopIds(routeId1);
+		}
+		final int r1 = Arrays.binarySearch(this.routeIds, routeId1);
+		final int r2 = Arrays.binarySearch(this.routeIds, routeId2);
+		if (r1 < 0 || r2 < 0) {
+			return NO_INT;
+		}
+		final int p = Arrays.binarySearch(this.pairKeys, pairKey(r1, r2, this.routeIds.length));
+		if (p < 0) {
+			return NO_INT;
+		}
+		return Arrays.copyOfRange(this.pairStopIds, this.pairStopOffsets[p], this.pairStopOffsets[p + 1]);
+	}
+
+	@NotNull
+	public int[] getStopIds() {
+		return this.stopIds.clone();
+	}
+
+	@NotNull
+	public long[] getRouteIds() {
+		return this.routeIds.clone();
+	}
+
+	public void writeTo(@NotNull File file) {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeInts(out, this.stopIds);
+			writeInts(out, this.stopTripOffsets);
+			writeLongs(out, this.stopTripIds);
+			writeInts(out, this.stopRouteOffsets);
+			writeLongs(out, this.stopRouteIds);
+			writeLongs(out, this.routeIds);
+			writeInts(out, this.routeStopOffsets);
+			writeInts(out, this.routeStopIds);
+			writeLongs(out, this.pairKeys);
+			writeInts(out, this.pairStopOffsets);
+			writeInts(out, this.pairStopIds);
+		} catch (IOException ioe) {
+			throw new MTLog.Fatal(ioe, "Error while writing stop route index to '%s'!", file);
+		}
+	}
+
+	@NotNull
+	public static StopRouteIndex readFrom(@NotNull File file) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+			if (in.readInt() != MAGIC) {
+				throw new MTLog.Fatal("Unexpected stop route index file '%s'!", file);
+			}
+			final int version = in.readInt();
+			if (version != VERSION) {
+				throw new MTLog.Fatal("Unexpected stop route index version %d in '%s'!", version, file);
+			}
+			return new StopRouteIndex(
+					readInts(in), readInts(in), readLongs(in),
+					readInts(in), readLongs(in),
+					readLongs(in), readInts(in), readInts(in),
+					readLongs(in), readInts(in), readInts(in)
+			);
+		} catch (IOException ioe) {
+			throw new MTLog.Fatal(ioe, "Error while reading stop route index from '%s'!", file);
+		}
+	}
+
+	private static void writeInts(@NotNull DataOutputStream out, @NotNull int[] values) throws IOException {
+		out.writeInt(values.length);
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	private static void writeLongs(@NotNull DataOutputStream out, @NotNull long[] values) throws IOException {
+		out.writeInt(values.length);
+		for (long value : values) {
+			out.writeLong(value);
+		}
+	}
+
+	@NotNull
+	private static int[] readInts(@NotNull DataInputStream in) throws IOException {
+		final int[] values = new int[in.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	@NotNull
+	private static long[] readLongs(@NotNull DataInputStream in) throws IOException {
+		final long[] values = new long[in.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readLong();
+		}
+		return values;
+	}
+}
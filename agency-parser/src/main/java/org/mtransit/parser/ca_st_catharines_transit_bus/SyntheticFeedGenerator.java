@@ -0,0 +1,450 @@
+package org.mtransit.parser.ca_st_catharines_transit_bus;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.mtransit.parser.MTLog;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Deterministic synthetic GTFS feed: the archived feed stops, routes, trips & stop times are replicated N times.
+ * <p>
+ * Only the routes kept by {@link StCatharinesTransitBusAgencyTools#isExcludedAgencyId(String)}
+ * & {@link StCatharinesTransitBusAgencyTools#isExcludedRoute(String, String, String)} with a numeric short name below 1000
+ * are replicated, with their trips, their stop times & the stops (and parent stations) they visit
+ * (the parser service date & empty route checks are NOT reproduced).
+ * <p>
+ * Replicas keep this agency formats so {@link StCatharinesTransitBusAgencyTools} parses them unchanged:
+ * <ul>
+ * <li>stop codes keep their "STC_..." / "AllNRT_..." prefix, numeric codes are shifted by {@link #REPLICA_ID_OFFSET} per replica,
+ * named codes with digits (CD..., CRL..., NOTL...) keep their family and their digits are shifted the same way,
+ * other named codes (DTT, Alnbg, DAS0174...) have no replica format and become "CD" digit codes
+ * (mapped to unique stop IDs, counted in {@link #getConvertedNamedCodeStops()})</li>
+ * <li>route short names are shifted by 1000 per replica and routes belong to the St. Catharines Transit Commission agency (no 300-499 filter)</li>
+ * <li>other IDs get a "_x{replica}" suffix</li>
+ * </ul>
+ * <p>
+ * Usage: {@code SyntheticFeedGenerator <archived GTFS zip> <scale factor> <seed> <output zip>}
+ */
+@SuppressWarnings("WeakerAccess")
+public final class SyntheticFeedGenerator {
+
+	public static void main(@NotNull String[] args) throws IOException {
+		if (args.length < 4) {
+			throw new MTLog.Fatal("Usage: SyntheticFeedGenerator <archived GTFS zip> <scale factor> <seed> <output zip>");
+		}
+		new SyntheticFeedGenerator(Integer.parseInt(args[1]), Long.parseLong(args[2])).generate(new File(args[0]), new File(args[3]));
+	}
+
+	static final int REPLICA_ID_OFFSET = 10_000_000;
+	private static final int NAMED_CODE_OFFSET = REPLICA_ID_OFFSET / 2;
+	private static final int CD_STOP_ID_OFFSET = 30_000; // see StCatharinesTransitBusAgencyTools.getStopId()
+	private static final String[] DIGITS_FAMILIES = new String[]{ // see StCatharinesTransitBusAgencyTools.getStopId()
+			StCatharinesTransitBusAgencyTools.CD,
+			StCatharinesTransitBusAgencyTools.CRL,
+			StCatharinesTransitBusAgencyTools.GLI,
+			StCatharinesTransitBusAgencyTools.LKV,
+			StCatharinesTransitBusAgencyTools.LLI,
+			StCatharinesTransitBusAgencyTools.NOTL,
+			StCatharinesTransitBusAgencyTools.PGL,
+			StCatharinesTransitBusAgencyTools.SCWE,
+	};
+	private static final int ROUTE_SHORT_NAME_OFFSET = 1000;
+	private static final double COORDINATES_JITTER = 0.05d;
+	private static final String REPLICA_SUFFIX = "_x";
+
+	private static final String AGENCY_TXT = "agency.txt";
+	private static final String STOPS_TXT = "stops.txt";
+	private static final String ROUTES_TXT = "routes.txt";
+	private static final String TRIPS_TXT = "trips.txt";
+	private static final String STOP_TIMES_TXT = "stop_times.txt";
+
+	private static final String AGENCY_ID = "agency_id";
+	private static final String AGENCY_NAME = "agency_name";
+	private static final String STOP_ID = "stop_id";
+	private static final String STOP_CODE = "stop_code";
+	private static final String STOP_LAT = "stop_lat";
+	private static final String STOP_LON = "stop_lon";
+	private static final String PARENT_STATION = "parent_station";
+	private static final String ROUTE_ID = "route_id";
+	private static final String ROUTE_SHORT_NAME = "route_short_name";
+	private static final String ROUTE_LONG_NAME = "route_long_name";
+	private static final String ROUTE_COLOR = "route_color";
+	private static final String TRIP_ID = "trip_id";
+	private static final String BLOCK_ID = "block_id";
+
+	private final int scaleFactor;
+	private final long seed;
+
+	// replicated (kept by the agency parser)
+	@NotNull
+	private final Set<String> routeIds = new HashSet<>();
+	@NotNull
+	private final Set<String> tripIds = new HashSet<>();
+	@NotNull
+	private final Set<String> stopIds = new HashSet<>();
+
+	// replica stops
+	private int namedCodeStops = 0;
+	private int convertedNamedCodeStops = 0;
+
+	public SyntheticFeedGenerator(int scaleFactor, long seed) {
+		if (scaleFactor < 1 || scaleFactor > Integer.MAX_VALUE / REPLICA_ID_OFFSET) {
+			throw new MTLog.Fatal("Unexpected scale factor %d!", scaleFactor);
+		}
+		this.scaleFactor = scaleFactor;
+		this.seed = seed;
+	}
+
+	/**
+	 * @return replica stops with a named code kept in its digits family (last {@link #generate(File, File)})
+	 */
+	public int getNamedCodeStops() {
+		return namedCodeStops;
+	}
+
+	/**
+	 * @return replica stops with a named code converted to a "CD" digits code (last {@link #generate(File, File)})
+	 */
+	public int getConvertedNamedCodeStops() {
+		return convertedNamedCodeStops;
+	}
+
+	/**
+	 * @return original routes replicated (last {@link #generate(File, File)})
+	 */
+	public int getReplicatedRoutes() {
+		return routeIds.size();
+	}
+
+	public void generate(@NotNull File archivedZip, @NotNull File outputZip) throws IOException {
+		final Random random = new Random(this.seed);
+		this.namedCodeStops = 0;
+		this.convertedNamedCodeStops = 0;
+		try (ZipFile in = new ZipFile(archivedZip);
+			 ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(outputZip.toPath()))) {
+			selectReplicated(in);
+			for (Enumeration<? extends ZipEntry> entries = in.entries(); entries.hasMoreElements(); ) {
+				final ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory()) {
+					continue;
+				}
+				out.putNextEntry(new ZipEntry(entry.getName()));
+				final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)); // NOT closed: next zip entry
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(in.getInputStream(entry), StandardCharsets.UTF_8))) {
+					switch (entry.getName()) {
+					case AGENCY_TXT:
+						writeAgencies(reader, writer);
+						break;
+					case STOPS_TXT:
+						writeStops(reader, writer, random);
+						break;
+					case ROUTES_TXT:
+						writeRoutes(reader, writer);
+						break;
+					case TRIPS_TXT:
+						writeReplicas(reader, writer, this.tripIds, TRIP_ID, ROUTE_ID, BLOCK_ID);
+						break;
+					case STOP_TIMES_TXT:
+						writeReplicas(reader, writer, this.tripIds, TRIP_ID, STOP_ID);
+						break;
+					default:
+						copy(reader, writer); // calendar, shapes...
+					}
+				}
+				writer.flush();
+				out.closeEntry();
+			}
+		}
+		MTLog.log("Synthetic feed x%d (seed: %d) generated in '%s' (%d bytes, %d routes, %d trips & %d stops replicated, %d named code stops, %d converted).",
+				this.scaleFactor, this.seed, outputZip, outputZip.length(),
+				this.routeIds.size(), this.tripIds.size(), this.stopIds.size(), this.namedCodeStops, this.convertedNamedCodeStops);
+	}
+
+	// routes kept by the agency parser (other agencies, NRT routes outside 300-499... excluded) & their trips & stops
+	private void selectReplicated(@NotNull ZipFile zip) throws IOException {
+		this.routeIds.clear();
+		this.tripIds.clear();
+		this.stopIds.clear();
+		final String[] defaultAgencyId = new String[1];
+		forEachRecord(zip, AGENCY_TXT, (header, record) -> {
+			if (defaultAgencyId[0] == null) {
+				defaultAgencyId[0] = GTFSCsv.get(header, record, AGENCY_ID);
+			}
+		});
+		forEachRecord(zip, ROUTES_TXT, (header, record) -> {
+			String agencyId = GTFSCsv.get(header, record, AGENCY_ID);
+			if (agencyId == null || agencyId.isEmpty()) {
+				agencyId = defaultAgencyId[0] == null ? "" : defaultAgencyId[0];
+			}
+			final String rsn = GTFSCsv.get(header, record, ROUTE_SHORT_NAME);
+			final String rln = GTFSCsv.get(header, record, ROUTE_LONG_NAME);
+			if (rsn == null || !isDigitsOnly(rsn) || Integer.parseInt(rsn) >= ROUTE_SHORT_NAME_OFFSET // replica short names shifted by 1000
+					|| StCatharinesTransitBusAgencyTools.isExcludedRoute(agencyId, rsn, rln == null ? "" : rln)) {
+				return;
+			}
+			this.routeIds.add(GTFSCsv.get(header, record, ROUTE_ID));
+		});
+		forEachRecord(zip, TRIPS_TXT, (header, record) -> {
+			if (this.routeIds.contains(GTFSCsv.get(header, record, ROUTE_ID))) {
+				this.tripIds.add(GTFSCsv.get(header, record, TRIP_ID));
+			}
+		});
+		forEachRecord(zip, STOP_TIMES_TXT, (header, record) -> {
+			if (this.tripIds.contains(GTFSCsv.get(header, record, TRIP_ID))) {
+				this.stopIds.add(GTFSCsv.get(header, record, STOP_ID));
+			}
+		});
+		final Map<String, String> parentStations = new HashMap<>();
+		forEachRecord(zip, STOPS_TXT, (header, record) -> {
+			final String parentStation = GTFSCsv.get(header, record, PARENT_STATION);
+			if (parentStation != null && !parentStation.isEmpty()) {
+				parentStations.put(GTFSCsv.get(header, record, STOP_ID), parentStation);
+			}
+		});
+		for (String stopId : new ArrayList<>(this.stopIds)) {
+			final String parentStation = parentStations.get(stopId);
+			if (parentStation != null) {
+				this.stopIds.add(parentStation);
+			}
+		}
+	}
+
+	private static void forEachRecord(@NotNull ZipFile zip, @NotNull String fileName,
+									  @NotNull BiConsumer<Map<String, Integer>, String[]> consumer) throws IOException {
+		final ZipEntry entry = zip.getEntry(fileName);
+		if (entry == null) {
+			return;
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+			final Map<String, Integer> header = GTFSCsv.readHeader(reader);
+			String line;
+			while ((line = reader.readLine()) != null) {
+				consumer.accept(header, GTFSCsv.split(line));
+			}
+		}
+	}
+
+	private static void copy(@NotNull BufferedReader reader, @NotNull BufferedWriter writer) throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			writer.write(line);
+			writer.newLine();
+		}
+	}
+
+	// replica routes belong to the St. Catharines Transit Commission agency
+	private void writeAgencies(@NotNull BufferedReader reader, @NotNull BufferedWriter writer) throws IOException {
+		final String headerLine = reader.readLine();
+		if (headerLine == null) {
+			return;
+		}
+		writer.write(headerLine);
+		writer.newLine();
+		final Map<String, Integer> header = GTFSCsv.readHeader(new BufferedReader(new StringReader(headerLine)));
+		String[] firstAgency = null;
+		boolean hasAgency = false;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			final String[] record = GTFSCsv.split(line);
+			if (firstAgency == null) {
+				firstAgency = record;
+			}
+			hasAgency |= StCatharinesTransitBusAgencyTools.ST_CATHARINES_TRANSIT_COMMISSION.equals(GTFSCsv.get(header, record, AGENCY_ID));
+			writer.write(line);
+			writer.newLine();
+		}
+		if (this.scaleFactor > 1 && !hasAgency && firstAgency != null && header.containsKey(AGENCY_ID)) {
+			final String[] agency = Arrays.copyOf(firstAgency, header.size());
+			set(header, agency, AGENCY_ID, StCatharinesTransitBusAgencyTools.ST_CATHARINES_TRANSIT_COMMISSION);
+			set(header, agency, AGENCY_NAME, StCatharinesTransitBusAgencyTools.ST_CATHARINES_TRANSIT_COMMISSION);
+			writer.write(GTFSCsv.join(agency));
+			writer.newLine();
+		}
+	}
+
+	private void writeStops(@NotNull BufferedReader reader, @NotNull BufferedWriter writer, @NotNull Random random) throws IOException {
+		final Map<String, Integer> header = writeHeader(reader, writer);
+		int index = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			final String[] record = GTFSCsv.split(line);
+			writer.write(line);
+			writer.newLine();
+			if (!this.stopIds.contains(GTFSCsv.get(header, record, STOP_ID))) {
+				index++;
+				continue;
+			}
+			for (int replica = 1; replica < this.scaleFactor; replica++) {
+				final String[] replicaRecord = Arrays.copyOf(record, header.size());
+				set(header, replicaRecord, STOP_ID, replicaId(GTFSCsv.get(header, record, STOP_ID), replica));
+				set(header, replicaRecord, PARENT_STATION, replicaId(GTFSCsv.get(header, record, PARENT_STATION), replica));
+				String stopCode = GTFSCsv.get(header, record, STOP_CODE);
+				if (stopCode == null || stopCode.isEmpty() || "0".equals(stopCode)) {
+					stopCode = GTFSCsv.get(header, record, STOP_ID);
+				}
+				set(header, replicaRecord, STOP_CODE, replicaStopCode(stopCode, index, replica));
+				if (stopCode != null && !stopCode.isEmpty() && !isDigitsOnly(removePrefix(stopCode))) {
+					if (getDigitsFamily(removePrefix(stopCode)) != null) {
+						this.namedCodeStops++;
+					} else {
+						this.convertedNamedCodeStops++;
+					}
+				}
+				set(header, replicaRecord, STOP_LAT, jitter(GTFSCsv.get(header, record, STOP_LAT), random));
+				set(header, replicaRecord, STOP_LON, jitter(GTFSCsv.get(header, record, STOP_LON), random));
+				writer.write(GTFSCsv.join(replicaRecord));
+				writer.newLine();
+			}
+			index++;
+		}
+	}
+
+	@Nullable
+	static String replicaStopCode(@Nullable String stopCode, int index, int replica) {
+		if (stopCode == null || stopCode.isEmpty()) {
+			return stopCode;
+		}
+		final String code = removePrefix(stopCode);
+		final String prefix = stopCode.substring(0, stopCode.length() - code.length());
+		if (isDigitsOnly(code)) {
+			return prefix + (replica * REPLICA_ID_OFFSET + Integer.parseInt(code));
+		}
+		final String family = getDigitsFamily(code);
+		if (family != null) {
+			return prefix + family + (replica * REPLICA_ID_OFFSET + Integer.parseInt(code.substring(family.length())));
+		}
+		// other named code => unique "CD" digits code
+		return prefix + StCatharinesTransitBusAgencyTools.CD + (replica * REPLICA_ID_OFFSET + NAMED_CODE_OFFSET + index - CD_STOP_ID_OFFSET);
+	}
+
+	// without "STC_..." / "AllNRT_..." prefix
+	@NotNull
+	private static String removePrefix(@NotNull String stopCode) {
+		final Matcher matcher = StCatharinesTransitBusAgencyTools.STARTS_WITH_STC_A00_.matcher(stopCode);
+		return matcher.find() ? stopCode.substring(matcher.group().length()) : stopCode;
+	}
+
+	// family + digits (ex: "CD0123", "NOTL45")
+	@Nullable
+	private static String getDigitsFamily(@NotNull String code) {
+		for (String family : DIGITS_FAMILIES) {
+			if (code.startsWith(family) && isDigitsOnly(code.substring(family.length()))) {
+				return family;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isDigitsOnly(@NotNull String code) {
+		return !code.isEmpty() && code.chars().allMatch(Character::isDigit);
+	}
+
+	private void writeRoutes(@NotNull BufferedReader reader, @NotNull BufferedWriter writer) throws IOException {
+		final Map<String, Integer> header = writeHeader(reader, writer);
+		String line;
+		while ((line = reader.readLine()) != null) {
+			final String[] record = GTFSCsv.split(line);
+			writer.write(line);
+			writer.newLine();
+			if (!this.routeIds.contains(GTFSCsv.get(header, record, ROUTE_ID))) {
+				continue;
+			}
+			for (int replica = 1; replica < this.scaleFactor; replica++) {
+				final String[] replicaRecord = Arrays.copyOf(record, header.size());
+				set(header, replicaRecord, ROUTE_ID, replicaId(GTFSCsv.get(header, record, ROUTE_ID), replica));
+				final String rsn = GTFSCsv.get(header, record, ROUTE_SHORT_NAME); // digits only, < 1000
+				set(header, replicaRecord, ROUTE_SHORT_NAME, String.valueOf(replica * ROUTE_SHORT_NAME_OFFSET + Integer.parseInt(rsn)));
+				set(header, replicaRecord, AGENCY_ID, StCatharinesTransitBusAgencyTools.ST_CATHARINES_TRANSIT_COMMISSION);
+				final String color = GTFSCsv.get(header, record, ROUTE_COLOR);
+				if (color == null || color.isEmpty()) {
+					set(header, replicaRecord, ROUTE_COLOR, StCatharinesTransitBusAgencyTools.AGENCY_COLOR); // no provideMissingRouteColor()
+				}
+				writer.write(GTFSCsv.join(replicaRecord));
+				writer.newLine();
+			}
+		}
+	}
+
+	// replicated if the 1st ID column is in the replicated IDs
+	private void writeReplicas(@NotNull BufferedReader reader, @NotNull BufferedWriter writer,
+							   @NotNull Set<String> replicatedIds, @NotNull String... idColumns) throws IOException {
+		final Map<String, Integer> header = writeHeader(reader, writer);
+		String line;
+		while ((line = reader.readLine()) != null) {
+			final String[] record = GTFSCsv.split(line);
+			writer.write(line);
+			writer.newLine();
+			if (!replicatedIds.contains(GTFSCsv.get(header, record, idColumns[0]))) {
+				continue;
+			}
+			for (int replica = 1; replica < this.scaleFactor; replica++) {
+				final String[] replicaRecord = Arrays.copyOf(record, header.size());
+				for (String idColumn : idColumns) {
+					set(header, replicaRecord, idColumn, replicaId(GTFSCsv.get(header, record, idColumn), replica));
+				}
+				writer.write(GTFSCsv.join(replicaRecord));
+				writer.newLine();
+			}
+		}
+	}
+
+	@NotNull
+	private static Map<String, Integer> writeHeader(@NotNull BufferedReader reader, @NotNull BufferedWriter writer) throws IOException {
+		final String headerLine = reader.readLine();
+		if (headerLine == null) {
+			return Collections.emptyMap();
+		}
+		writer.write(headerLine);
+		writer.newLine();
+		return GTFSCsv.readHeader(new BufferedReader(new StringReader(headerLine)));
+	}
+
+	@Nullable
+	private static String replicaId(@Nullable String id, int replica) {
+		if (id == null || id.isEmpty()) {
+			return id;
+		}
+		return id + REPLICA_SUFFIX + replica;
+	}
+
+	@Nullable
+	private static String jitter(@Nullable String coordinate, @NotNull Random random) {
+		if (coordinate == null || coordinate.trim().isEmpty()) {
+			return coordinate;
+		}
+		final double value = Double.parseDouble(coordinate.trim()) + (random.nextDouble() * 2.0d - 1.0d) * COORDINATES_JITTER;
+		return String.format(Locale.ENGLISH, "%.6f", value);
+	}
+
+	private static void set(@NotNull Map<String, Integer> header, @NotNull String[] record, @NotNull String column, @Nullable String value) {
+		final Integer index = header.get(column);
+		if (index != null) {
+			record[index] = value;
+		}
+	}
+
+}
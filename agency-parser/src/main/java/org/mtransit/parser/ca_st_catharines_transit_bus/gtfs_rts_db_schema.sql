@@ -0,0 +1,16 @@
+-- App GTFS provider database schema used by DatabaseImageBuilder (versioned with this tool).
+-- Mirrors the commons-android GTFS provider tables for the raw files imported on first launch:
+-- update it with the app schema (user_version comes from gtfs_rts_db_version in gtfs_rts_values.xml).
+-- 1 statement per ";" (no triggers); CREATE INDEX statements run after the import.
+CREATE TABLE android_metadata (locale TEXT);
+INSERT INTO android_metadata VALUES ('en_US');
+CREATE TABLE route (_id INTEGER PRIMARY KEY, short_name TEXT, long_name TEXT, color TEXT, original_id_hash INTEGER, type INTEGER);
+CREATE TABLE trip (_id INTEGER PRIMARY KEY, headsign_type INTEGER, headsign_value TEXT, route_id INTEGER);
+CREATE TABLE stop (_id INTEGER PRIMARY KEY, code TEXT, name TEXT, lat REAL, lng REAL, accessible INTEGER, original_id_hash INTEGER);
+CREATE TABLE trip_stops (_id INTEGER PRIMARY KEY AUTOINCREMENT, trip_id INTEGER, stop_id INTEGER, stop_sequence INTEGER, no_pickup INTEGER, no_drop_off INTEGER);
+CREATE TABLE service_dates (service_id TEXT, date INTEGER, exception_type INTEGER);
+CREATE INDEX trip_route_id_idx ON trip (route_id);
+CREATE INDEX trip_stops_trip_id_idx ON trip_stops (trip_id);
+CREATE INDEX trip_stops_stop_id_idx ON trip_stops (stop_id);
+CREATE INDEX service_dates_date_idx ON service_dates (date);
+CREATE INDEX service_dates_service_id_idx ON service_dates (service_id);